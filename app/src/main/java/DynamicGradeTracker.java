@@ -0,0 +1,1687 @@
+import javafx.animation.Interpolator;
+import javafx.animation.ScaleTransition;
+import javafx.animation.TranslateTransition;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import gradetracker.calc.ClassStatistics;
+import gradetracker.calc.ClassSummary;
+import gradetracker.calc.RowStats;
+import gradetracker.calc.SheetCalculator;
+import gradetracker.engine.EditHistory;
+import gradetracker.engine.GradeEngine;
+import gradetracker.io.AutoSaveService;
+import gradetracker.io.CsvReader;
+import gradetracker.io.MappedCsvImporter;
+import gradetracker.io.RosterEdit;
+import gradetracker.io.RosterSnapshot;
+import gradetracker.model.ColumnarRoster;
+import gradetracker.model.Marks;
+import gradetracker.model.StudentRow;
+
+public class DynamicGradeTracker extends Application {
+
+    private final TableView<StudentRow> tableView = new TableView<>();
+    private final ObservableList<StudentRow> data = FXCollections.observableArrayList();
+    private final RowPositions<StudentRow> rowPositions = new RowPositions<>(data);
+    // Statistics shown in the derived columns, per row (see statsValue)
+    private final Map<StudentRow, ObjectProperty<RowStats>> rowStatsValues = new IdentityHashMap<>();
+    private List<String> subjects = new ArrayList<>();
+    private ObservableList<String> maxMarks = FXCollections.observableArrayList(); // Stores max marks for each subject
+    private final Label overallClassAverageLabel = new Label("N/A");
+    private final Label summaryTitleLabel = new Label("Overall Class Average");
+    // Spread, percentiles, grade distribution and subject averages under the class average
+    private final Label summaryStatsLabel = new Label();
+    private final Label gradeDistributionLabel = new Label();
+    private final Label subjectAveragesLabel = new Label();
+    private final TextField subjectNamesField = new TextField();
+    private final TextField maxMarksField = new TextField();
+    private static final String AUTOSAVE_FILE = "grades_autosave.csv";
+    // Row changes larger than this are saved as a full snapshot instead of one journal record per row
+    private static final int BULK_CHANGE_ROWS = 64;
+    // Pastes and fills of more cells than this are saved as a full snapshot instead of one record
+    private static final int BULK_CHANGE_CELLS = 10_000;
+    private static final KeyCombination PASTE_KEYS = new KeyCodeCombination(KeyCode.V, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination FILL_DOWN_KEYS = new KeyCodeCombination(KeyCode.D, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination FILL_RIGHT_KEYS = new KeyCodeCombination(KeyCode.R, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination UNDO_KEYS = new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination REDO_KEYS = new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN);
+    private static final KeyCombination REDO_ALTERNATE_KEYS = new KeyCodeCombination(KeyCode.Z,
+            KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN);
+    // Memory the undo history may hold; older steps are forgotten beyond it
+    private static final long UNDO_BYTES = Long.getLong("gradetracker.undoBytes", 64L * 1024 * 1024);
+    // Rosters of at least this many rows get their class average computed in parallel, in chunks
+    // of STATS_CHUNK_ROWS; set with -Dgradetracker.parallelStatsRows=N
+    private static final int PARALLEL_STATS_ROWS = Integer.getInteger("gradetracker.parallelStatsRows", 10_000);
+    private static final int STATS_CHUNK_ROWS = 4096;
+    private final ForkJoinPool statsPool = ForkJoinPool.commonPool();
+    private int statsGeneration;
+    // Latest class figures; the summary card follows this property
+    private final ObjectProperty<ClassSummary> classSummary = new SimpleObjectProperty<>();
+    private boolean summaryRefreshScheduled;
+    // CSV import running in the background, null when idle
+    private CsvImportTask importTask;
+    private final ProgressBar importProgressBar = new ProgressBar(0);
+    private final Label importStatusLabel = new Label();
+    private final HBox importStatusBar = new HBox(10);
+    // Journals every edit on a background thread and periodically folds the journal into a snapshot
+    private final AutoSaveService autoSaveService = new AutoSaveService(Paths.get(AUTOSAVE_FILE),
+            new AutoSaveService.Listener() {
+                @Override
+                public void journalDamaged(int editsReplayed) {
+                    Platform.runLater(() -> showAlert("Auto-Save Recovery", "Part of the auto-saved changes was "
+                            + "damaged and could not be restored; the first " + editsReplayed
+                            + " change(s) after the last save were recovered."));
+                }
+
+                @Override
+                public void saveFailed(IOException error) {
+                    // Failed writes are retried on the next change, so an alert would repeat
+                    System.err.println("Auto-save failed: " + error.getMessage());
+                }
+            });
+
+    // Edits whichever table cell is being edited
+    private final CellEditor cellEditor = new CellEditor();
+
+    // Marks, formulas and statistics of the rows in data; the table is a view of this engine
+    private final GradeEngine engine = new GradeEngine(data);
+    // Repaints the cells the engine reports as changed
+    private final TableChanges tableChanges = new TableChanges();
+    // Undo and redo of cell, row and subject changes
+    private final EditHistory history = new EditHistory(new HistoryTarget(), UNDO_BYTES);
+    private final Button undoButton = new Button("↩️ Undo");
+    private final Button redoButton = new Button("↪️ Redo");
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
+        primaryStage.setTitle("Dynamic Grade Tracker ✨");
+
+        BorderPane root = new BorderPane();
+        root.getStyleClass().add("root-pane");
+
+        VBox controlPanel = createControlPanel();
+        root.setLeft(controlPanel);
+
+        VBox rightPanel = createRightPanel();
+        root.setCenter(rightPanel);
+
+        loadAutoSavedData(); // Attempt to load data at startup
+
+        Scene scene = new Scene(root, 1400, 850);
+        URL cssUrl = getClass().getResource("styles.css");
+        if (cssUrl != null) {
+            scene.getStylesheets().add(cssUrl.toExternalForm());
+        } else {
+            System.err.println("Warning: Could not find 'styles.css'. Application will use default styling.");
+        }
+        primaryStage.setScene(scene);
+        primaryStage.show();
+    }
+
+    @Override
+    public void stop() {
+        autoSaveService.close(); // Lets the writer finish journalling the last edits
+    }
+
+    private VBox createControlPanel() {
+        VBox controlPanel = new VBox(30);
+        controlPanel.setPadding(new Insets(25));
+        controlPanel.getStyleClass().add("control-panel");
+        controlPanel.setPrefWidth(340);
+
+        // Section 1: Define Subjects & Max Marks
+        VBox defineSubjectsContent = new VBox(15);
+        Label subjectNamesLabel = new Label("Subject Names (comma-separated):");
+        subjectNamesField.setPromptText("e.g., Maths, Science, History");
+
+        Label maxMarksLabel = new Label("Max Marks per Subject (comma-separated):");
+        maxMarksField.setPromptText("e.g., 100, 50, 80 (must match subjects)");
+
+        Button updateSubjectsButton = new Button("🔄 Update Subjects");
+        updateSubjectsButton.setMaxWidth(Double.MAX_VALUE);
+        updateSubjectsButton.getStyleClass().add("button-primary");
+        updateSubjectsButton.setOnAction(e -> updateSubjects(subjectNamesField.getText(), maxMarksField.getText()));
+
+        defineSubjectsContent.getChildren().addAll(subjectNamesLabel, subjectNamesField, maxMarksLabel, maxMarksField,
+                updateSubjectsButton);
+        TitledPane defineSubjectsPane = new TitledPane("1. Define Subjects & Max Marks", defineSubjectsContent);
+        defineSubjectsPane.setCollapsible(false);
+
+        // Section 2: Create Student Rows
+        VBox createStudentRowsContent = new VBox(15);
+        Label numStudentsLabel = new Label("Number of Students to Add:");
+        TextField numStudentsField = new TextField();
+        numStudentsField.setPromptText("e.g., 5");
+        Button createStudentRowsButton = new Button("➕ Create Student Rows");
+        createStudentRowsButton.setMaxWidth(Double.MAX_VALUE);
+        createStudentRowsButton.getStyleClass().add("button-success");
+        createStudentRowsButton.setOnAction(e -> createStudentRows(numStudentsField.getText()));
+        createStudentRowsContent.getChildren().addAll(numStudentsLabel, numStudentsField, createStudentRowsButton);
+        TitledPane createStudentRowsPane = new TitledPane("2. Create Student Rows", createStudentRowsContent);
+        createStudentRowsPane.setCollapsible(false);
+
+        // Calculate All Student Stats (and class description)
+        Button calculateAllStatsButton = new Button("🧮 Calculate All Student Stats");
+        calculateAllStatsButton.setMaxWidth(Double.MAX_VALUE);
+        calculateAllStatsButton.getStyleClass().add("button-primary");
+        calculateAllStatsButton.setOnAction(e -> recalculateAllStudentStats());
+
+        // Action Buttons
+        Button importButton = new Button("📥 Import from CSV");
+        importButton.getStyleClass().add("button-info");
+        importButton.setMaxWidth(Double.MAX_VALUE);
+        importButton.setOnAction(e -> importFromCSV());
+
+        Button exportButton = new Button("💾 Export to CSV");
+        exportButton.getStyleClass().add("button-info");
+        exportButton.setMaxWidth(Double.MAX_VALUE);
+        exportButton.setOnAction(e -> exportToCSV());
+
+        Button cleanupButton = new Button("🧹 Clean Empty Rows");
+        cleanupButton.getStyleClass().add("button-warning");
+        cleanupButton.setMaxWidth(Double.MAX_VALUE);
+        cleanupButton.setOnAction(e -> handleManualCleanup());
+
+        Button deleteSelectedButton = new Button("🗑️ Delete Selected Rows");
+        deleteSelectedButton.getStyleClass().add("button-danger");
+        deleteSelectedButton.setMaxWidth(Double.MAX_VALUE);
+        deleteSelectedButton.setOnAction(e -> handleDeleteSelectedRows());
+
+        Button clearAllButton = new Button("💥 Clear All Data");
+        clearAllButton.getStyleClass().add("button-danger-outline");
+        clearAllButton.setMaxWidth(Double.MAX_VALUE);
+        clearAllButton.setOnAction(e -> clearAllData());
+
+        undoButton.getStyleClass().add("button-info");
+        undoButton.setMaxWidth(Double.MAX_VALUE);
+        undoButton.setOnAction(e -> history.undo());
+        redoButton.getStyleClass().add("button-info");
+        redoButton.setMaxWidth(Double.MAX_VALUE);
+        redoButton.setOnAction(e -> history.redo());
+        HBox.setHgrow(undoButton, Priority.ALWAYS);
+        HBox.setHgrow(redoButton, Priority.ALWAYS);
+        HBox undoRedoButtons = new HBox(15, undoButton, redoButton);
+        history.setOnChange(() -> {
+            undoButton.setDisable(!history.canUndo());
+            redoButton.setDisable(!history.canRedo());
+        });
+        undoButton.setDisable(true);
+        redoButton.setDisable(true);
+
+        VBox bottomButtons = new VBox(15, undoRedoButtons, calculateAllStatsButton, importButton, exportButton, cleanupButton,
+                deleteSelectedButton,
+                clearAllButton);
+        bottomButtons.setAlignment(Pos.CENTER);
+
+        controlPanel.getChildren().addAll(defineSubjectsPane, createStudentRowsContent, new Region(), bottomButtons);
+        VBox.setVgrow(controlPanel.getChildren().get(2), Priority.ALWAYS);
+
+        return controlPanel;
+    }
+
+    private VBox createRightPanel() {
+        VBox rightPanel = new VBox(20);
+        rightPanel.setPadding(new Insets(25));
+        rightPanel.getStyleClass().add("right-panel");
+
+        Label titleLabel = new Label("Student Grade Roster");
+        titleLabel.getStyleClass().add("header-title");
+
+        Label subtitleLabel = new Label(
+                "Import a CSV, or define subjects to begin. Use Ctrl/Cmd+Click to select rows. Formulas start with '=' (e.g., =50*2, =SUM(C2:C4))"); // Updated
+                                                                                                                                                     // subtitle
+        subtitleLabel.getStyleClass().add("header-subtitle");
+
+        Button cancelImportButton = new Button("✖ Cancel Import");
+        cancelImportButton.getStyleClass().add("button-warning");
+        cancelImportButton.setOnAction(e -> {
+            if (importTask != null) {
+                importTask.cancel();
+            }
+        });
+        importProgressBar.setMaxWidth(Double.MAX_VALUE);
+        HBox.setHgrow(importProgressBar, Priority.ALWAYS);
+        importStatusBar.getChildren().addAll(importStatusLabel, importProgressBar, cancelImportButton);
+        importStatusBar.setAlignment(Pos.CENTER_LEFT);
+        importStatusBar.setVisible(false);
+        importStatusBar.setManaged(false);
+
+        tableView.setEditable(true);
+        tableView.setItems(data);
+        engine.addChangeListener(tableChanges);
+        // Formula references are positional, so any insert, delete or sort invalidates cached results
+        data.addListener((ListChangeListener<StudentRow>) change -> {
+            if (importTask == null) {
+                journalRowChanges(change); // An import is saved as one snapshot when it finishes
+            }
+            change.reset();
+            recordRowChanges(change);
+            List<StudentRow> removed = new ArrayList<>();
+            List<StudentRow> added = new ArrayList<>();
+            change.reset();
+            while (change.next()) {
+                removed.addAll(change.getRemoved());
+                added.addAll(change.getAddedSubList());
+            }
+            engine.rowsChanged(removed, added);
+            for (StudentRow row : removed) {
+                rowStatsValues.remove(row);
+            }
+            scheduleSummaryRefresh();
+        });
+        tableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        // Spreadsheet shortcuts while no cell is being edited (the editor handles its own)
+        tableView.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
+            if (tableView.getEditingCell() != null) {
+                return;
+            }
+            if (PASTE_KEYS.match(event)) {
+                pasteCells();
+                event.consume();
+            } else if (FILL_DOWN_KEYS.match(event)) {
+                fillDown();
+                event.consume();
+            } else if (FILL_RIGHT_KEYS.match(event)) {
+                fillRight();
+                event.consume();
+            } else if (UNDO_KEYS.match(event)) {
+                history.undo();
+                event.consume();
+            } else if (REDO_KEYS.match(event) || REDO_ALTERNATE_KEYS.match(event)) {
+                history.redo();
+                event.consume();
+            }
+        });
+        VBox.setVgrow(tableView, Priority.ALWAYS);
+
+        Label placeholder = new Label("Import a CSV or define subjects and add students to begin! 🚀");
+        placeholder.getStyleClass().add("table-placeholder");
+        tableView.setPlaceholder(placeholder);
+
+        tableView.setRowFactory(tv -> {
+            TableRow<StudentRow> row = new TableRow<>();
+            ContextMenu contextMenu = new ContextMenu();
+            MenuItem addAbove = new MenuItem("⬆️ Add Row Above");
+            addAbove.setOnAction(e -> addRowAt(row.getIndex()));
+            MenuItem addBelow = new MenuItem("⬇️ Add Row Below");
+            addBelow.setOnAction(e -> addRowAt(row.getIndex() + 1));
+            MenuItem deleteRow = new MenuItem("❌ Delete This Row");
+            deleteRow.getStyleClass().add("menu-item-danger");
+            deleteRow.setOnAction(e -> data.remove(row.getIndex()));
+            MenuItem paste = new MenuItem("📋 Paste Cells");
+            paste.setOnAction(e -> pasteCells());
+            MenuItem fillDown = new MenuItem("⏬ Fill Down");
+            fillDown.setOnAction(e -> fillDown());
+            MenuItem fillRight = new MenuItem("⏩ Fill Right");
+            fillRight.setOnAction(e -> fillRight());
+            contextMenu.getItems().addAll(addAbove, addBelow, new SeparatorMenuItem(), paste, fillDown, fillRight,
+                    new SeparatorMenuItem(), deleteRow);
+            row.contextMenuProperty().bind(row.emptyProperty().map(empty -> empty ? null : contextMenu));
+
+            // Add hover effect to rows
+            row.hoverProperty().addListener((obs, wasHovered, isNowHovered) -> {
+                if (isNowHovered) {
+                    row.getStyleClass().add("table-row-cell-hover");
+                } else {
+                    row.getStyleClass().remove("table-row-cell-hover");
+                }
+            });
+            return row;
+        });
+
+        updateTableColumns();
+
+        VBox summaryCard = new VBox(5, summaryTitleLabel, overallClassAverageLabel, summaryStatsLabel,
+                gradeDistributionLabel, subjectAveragesLabel);
+        summaryCard.getStyleClass().add("summary-card");
+        summaryCard.setAlignment(Pos.CENTER);
+        summaryTitleLabel.getStyleClass().add("summary-title");
+        overallClassAverageLabel.getStyleClass().add("summary-value");
+        classSummary.addListener((observable, previous, summary) -> showClassSummary(summary));
+        summaryStatsLabel.getStyleClass().add("summary-detail");
+        gradeDistributionLabel.getStyleClass().add("summary-detail");
+        subjectAveragesLabel.getStyleClass().add("summary-detail");
+        subjectAveragesLabel.setWrapText(true);
+
+        Button generateSummaryButton = new Button("📊 Generate Class Summary");
+        generateSummaryButton.getStyleClass().add("button-primary");
+        generateSummaryButton.setOnAction(e -> {
+            calculateOverallAverage();
+            ScaleTransition st = new ScaleTransition(Duration.millis(200), summaryCard);
+            st.setFromX(1);
+            st.setFromY(1);
+            st.setToX(1.05);
+            st.setToY(1.05);
+            st.setCycleCount(2);
+            st.setAutoReverse(true);
+            st.play();
+        });
+
+        HBox bottomBar = new HBox(30, summaryCard, generateSummaryButton);
+        bottomBar.setAlignment(Pos.CENTER_RIGHT);
+        HBox.setHgrow(summaryCard, Priority.ALWAYS);
+
+        rightPanel.getChildren().addAll(titleLabel, subtitleLabel, importStatusBar, tableView, bottomBar);
+        return rightPanel;
+    }
+
+    private void updateSubjects(String subjectNamesText, String maxMarksText) {
+        this.subjects = new ArrayList<>(Arrays.asList(subjectNamesText.split("\\s*,\\s*")));
+        if (this.subjects.size() == 1 && this.subjects.get(0).isEmpty()) {
+            this.subjects.clear();
+        }
+
+        List<String> tempMaxMarks = Arrays.asList(maxMarksText.split("\\s*,\\s*"));
+        this.maxMarks.clear();
+
+        if (this.subjects.size() == tempMaxMarks.size()) {
+            this.maxMarks.addAll(tempMaxMarks);
+        } else if (!tempMaxMarks.isEmpty() && !(tempMaxMarks.size() == 1 && tempMaxMarks.get(0).isEmpty())) {
+            showAlert("Input Error", "Number of 'Max Marks' entries (" + tempMaxMarks.size() +
+                    ") must match the number of 'Subjects' (" + this.subjects.size() +
+                    "). Defaulting to 100 for all subjects.");
+            for (int i = 0; i < this.subjects.size(); i++) {
+                this.maxMarks.add("100");
+            }
+            maxMarksField.setText(String.join(", ", this.maxMarks));
+        } else {
+            for (int i = 0; i < this.subjects.size(); i++) {
+                this.maxMarks.add("100");
+            }
+            maxMarksField.setText(String.join(", ", this.maxMarks));
+        }
+        recordSubjectChange();
+        engine.setSubjects(this.subjects, this.maxMarks);
+        autoSaveService.record(RosterEdit.setSubjects(this.subjects, this.maxMarks));
+
+        updateTableColumns(); // New columns, so every cell is built afresh
+        scheduleSummaryRefresh();
+    }
+
+    // Records the subject change about to be made for undo, with the values of any subject
+    // columns it drops
+    private void recordSubjectChange() {
+        if (!history.isRecording()) {
+            return;
+        }
+        List<String> oldSubjects = engine.getSubjects();
+        int kept = Math.min(oldSubjects.size(), subjects.size());
+        String[][] dropped = oldSubjects.size() > kept && !data.isEmpty()
+                ? engine.getValues(0, 3 + kept, data.size(), oldSubjects.size() - kept)
+                : null;
+        history.subjectsChanged(oldSubjects, engine.getMaxMarks(), subjects, maxMarks, dropped);
+    }
+
+    private void updateTableColumns() {
+        tableView.getColumns().clear();
+
+        // Shows the row's position, so it needs no value of its own
+        TableColumn<StudentRow, Void> snoColumn = new TableColumn<>("S.NO.");
+        snoColumn.setPrefWidth(60);
+        snoColumn.setSortable(false);
+        snoColumn.setEditable(false);
+        snoColumn.getStyleClass().add("centered-cell");
+        snoColumn.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Void item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : Integer.toString(getIndex() + 1));
+            }
+        });
+
+        TableColumn<StudentRow, String> rollNoColumn = createEditableColumn("ROLL NO", 1);
+        rollNoColumn.getStyleClass().add("centered-cell");
+
+        TableColumn<StudentRow, String> nameColumn = createEditableColumn("NAME", 2);
+        nameColumn.setPrefWidth(150);
+
+        tableView.getColumns().addAll(snoColumn, rollNoColumn, nameColumn);
+
+        for (int i = 0; i < subjects.size(); i++) {
+            TableColumn<StudentRow, String> subjectColumn = createEditableColumn(
+                    subjects.get(i).toUpperCase(), i + 3);
+            subjectColumn.getStyleClass().add("centered-cell");
+            tableView.getColumns().add(subjectColumn);
+        }
+
+        TableColumn<StudentRow, RowStats> totalMarksColumn = createStatsColumn("TOTAL MARKS", 120,
+                stats -> Marks.formatFixed(stats.getTotal(), 2));
+        tableView.getColumns().add(totalMarksColumn);
+
+        TableColumn<StudentRow, RowStats> percentageColumn = createStatsColumn("PERCENTAGE", 120,
+                stats -> Marks.formatFixed(stats.getPercentage(), 2) + "%");
+        percentageColumn.setSortable(true);
+        percentageColumn.setComparator(Comparator.comparingDouble(RowStats::getPercentage));
+        tableView.getColumns().add(percentageColumn);
+
+        TableColumn<StudentRow, RowStats> gradeColumn = createStatsColumn("GRADE", 90, RowStats::getGrade);
+        gradeColumn.setSortable(true);
+        gradeColumn.setComparator(Comparator.comparing(RowStats::getGrade));
+        gradeColumn.setCellFactory(column -> tableChanges.track(new GradeCell()));
+        tableView.getColumns().add(gradeColumn);
+
+        // New columns for Average, Highest, and Lowest marks
+        TableColumn<StudentRow, RowStats> avgMarkColumn = createStatsColumn("AVG MARK", 120,
+                stats -> Marks.formatFixed(stats.getAverage(), 2));
+        tableView.getColumns().add(avgMarkColumn);
+
+        TableColumn<StudentRow, RowStats> highestMarkColumn = createStatsColumn("HIGHEST MARK", 120,
+                stats -> Marks.formatFixed(stats.getHighest(), 2));
+        tableView.getColumns().add(highestMarkColumn);
+
+        TableColumn<StudentRow, RowStats> lowestMarkColumn = createStatsColumn("LOWEST MARK", 120,
+                stats -> Marks.formatFixed(stats.getLowest(), 2));
+        tableView.getColumns().add(lowestMarkColumn);
+    }
+
+    // Read-only column showing one figure of the row's statistics. All such columns of a row share
+    // its statsValue, and their cells only format the figure when the statistics changed.
+    private TableColumn<StudentRow, RowStats> createStatsColumn(String title, double width,
+            Function<RowStats, String> text) {
+        TableColumn<StudentRow, RowStats> column = new TableColumn<>(title);
+        column.setPrefWidth(width);
+        column.setSortable(false);
+        column.setEditable(false);
+        column.getStyleClass().add("centered-cell");
+        column.setCellValueFactory(param -> statsValue(param.getValue()));
+        column.setCellFactory(col -> tableChanges.track(new StatsCell(text)));
+        return column;
+    }
+
+    private TableColumn<StudentRow, String> createEditableColumn(String title, int index) {
+        TableColumn<StudentRow, String> column = new TableColumn<>(title);
+        column.setPrefWidth(120);
+        column.setCellValueFactory(param -> new SimpleStringProperty(engine.getValue(param.getValue(), index)));
+        column.setCellFactory(col -> tableChanges.track(new EditableCell(index)));
+        column.setOnEditCommit(event -> {
+            // Only the edited cell and the formulas that depend on it lose their cached results,
+            // and tableChanges repaints just those cells (and their rows' statistics)
+            writeCells(event.getTablePosition().getRow(), index, new String[][] { { event.getNewValue() } });
+        });
+        return column;
+    }
+
+    private void createStudentRows(String numStudentsStr) {
+        try {
+            int numStudents = Integer.parseInt(numStudentsStr);
+            if (numStudents <= 0) {
+                showAlert("Input Error", "Please enter a positive number of students.");
+                return;
+            }
+            List<StudentRow> newRows = new ArrayList<>(numStudents);
+            for (int i = 0; i < numStudents; i++) {
+                newRows.add(createRow(new String[2 + subjects.size()]));
+            }
+            data.addAll(newRows);
+        } catch (NumberFormatException e) {
+            showAlert("Input Error", "Please enter a valid number.");
+        }
+    }
+
+    private void calculateOverallAverage() {
+        calculateOverallAverage(null);
+    }
+
+    // Small rosters are summarised right here. From PARALLEL_STATS_ROWS rows on, the first pass
+    // runs on the fork/join pool over a copy of the roster, so edits can go on meanwhile, and only
+    // the result comes back to the FX thread; onDone (if any) runs after the card shows it. Once
+    // computed, the engine keeps the figures up to date as cells are edited.
+    private void calculateOverallAverage(Runnable onDone) {
+        int generation = ++statsGeneration; // Results of earlier, still running passes are dropped
+        if (engine.hasClassStatistics() || data.size() < PARALLEL_STATS_ROWS) {
+            classSummary.set(engine.classSummary());
+            if (onDone != null) {
+                onDone.run();
+            }
+            return;
+        }
+
+        GradeEngine copy = engine.copy();
+        overallClassAverageLabel.setText("Calculating…");
+        CompletableFuture.supplyAsync(() -> copy.classSummary(statsPool, STATS_CHUNK_ROWS), statsPool)
+                .whenComplete((summary, error) -> Platform.runLater(() -> {
+                    if (generation != statsGeneration) {
+                        return;
+                    }
+                    if (error != null) {
+                        classSummary.set(null);
+                        showSummaryError();
+                    } else if (!engine.adoptClassStatistics(copy)) {
+                        calculateOverallAverage(onDone); // The roster changed meanwhile
+                        return;
+                    } else {
+                        classSummary.set(summary);
+                    }
+                    if (onDone != null) {
+                        onDone.run();
+                    }
+                }));
+    }
+
+    // Brings the summary card up to date after a change, once per pulse however many changes
+    // there were. Uses the engine's running figures when it has them, which is the usual case.
+    private void scheduleSummaryRefresh() {
+        if (summaryRefreshScheduled || importTask != null) {
+            return; // An import refreshes the card when it finishes
+        }
+        summaryRefreshScheduled = true;
+        Platform.runLater(() -> {
+            summaryRefreshScheduled = false;
+            calculateOverallAverage();
+        });
+    }
+
+    private void showClassSummary(ClassSummary summary) {
+        var summaryCard = summaryTitleLabel.getParent();
+        summaryCard.getStyleClass().remove("summary-error");
+
+        if (summary == null || summary.getStudents() == 0) {
+            clearClassSummary();
+            return;
+        }
+        if (Double.isNaN(summary.getMean())) {
+            showSummaryError();
+            return;
+        }
+
+        overallClassAverageLabel.setText(String.format("%.2f%%", summary.getMean()));
+        String problems = "";
+        if (summary.getUngradedStudents() > 0) {
+            problems += String.format("%n%d of %d students could not be graded", summary.getUngradedStudents(),
+                    summary.getStudents());
+        }
+        if (summary.getErrorCells() > 0) {
+            problems += String.format("%n%d cells with formula errors", summary.getErrorCells());
+        }
+        if (!problems.isEmpty()) {
+            summaryCard.getStyleClass().add("summary-error");
+        }
+        summaryStatsLabel.setText(String.format(
+                "Median %.2f%%   Std dev %.2f%nP10 %.2f%%   P25 %.2f%%   P75 %.2f%%   P90 %.2f%%%s",
+                summary.getMedian(), summary.getStandardDeviation(), summary.getP10(), summary.getP25(),
+                summary.getP75(), summary.getP90(), problems));
+
+        StringBuilder grades = new StringBuilder("Grades:");
+        for (String grade : ClassStatistics.GRADES) {
+            grades.append("  ").append(grade).append(' ').append(summary.getGradeCount(grade));
+        }
+        gradeDistributionLabel.setText(grades.toString());
+
+        StringBuilder averages = new StringBuilder();
+        for (int i = 0; i < summary.getSubjects().size(); i++) {
+            double average = summary.getSubjectAverage(i);
+            averages.append(averages.length() == 0 ? "Subject averages: " : "   ")
+                    .append(summary.getSubjects().get(i)).append(' ')
+                    .append(Double.isNaN(average) ? "-" : String.format("%.2f", average));
+        }
+        subjectAveragesLabel.setText(averages.toString());
+    }
+
+    private void showSummaryError() {
+        clearClassSummary();
+        overallClassAverageLabel.setText("Error");
+        summaryTitleLabel.getParent().getStyleClass().add("summary-error");
+    }
+
+    private void clearClassSummary() {
+        overallClassAverageLabel.setText("N/A");
+        summaryStatsLabel.setText("");
+        gradeDistributionLabel.setText("");
+        subjectAveragesLabel.setText("");
+    }
+
+    private void recalculateAllStudentStats() {
+        engine.recalculate(); // tableChanges repaints every visible cell with fresh values
+        // Recalculates and updates the overall class average
+        calculateOverallAverage(() -> showAlert("Recalculation Complete",
+                "All student total marks, percentages, and grades have been recalculated. Overall class summary updated."));
+    }
+
+    // Copies the roster (ROLL NO, NAME and subject values of each row) so it can be written out
+    // off the UI thread. Empty rows are included so row positions match the edit journal.
+    private RosterSnapshot createSnapshot() {
+        return engine.snapshot();
+    }
+
+    private String[] rowValues(StudentRow row) {
+        return engine.rowValues(row);
+    }
+
+    // Records inserted and removed rows in the autosave journal. Sorting and large bulk changes
+    // (imports, clean-ups) are cheaper to save as one snapshot than as a record per row.
+    private void journalRowChanges(ListChangeListener.Change<? extends StudentRow> change) {
+        List<RosterEdit> edits = new ArrayList<>();
+        while (change.next()) {
+            if (change.wasPermutated() || change.getRemovedSize() + change.getAddedSize() > BULK_CHANGE_ROWS) {
+                autoSaveService.save(createSnapshot());
+                return;
+            }
+            if (change.wasRemoved()) {
+                edits.add(RosterEdit.deleteRows(change.getFrom(), change.getRemovedSize()));
+            }
+            if (change.wasAdded()) {
+                int position = change.getFrom();
+                for (StudentRow row : change.getAddedSubList()) {
+                    edits.add(RosterEdit.insertRow(position++, rowValues(row)));
+                }
+            }
+        }
+        for (RosterEdit edit : edits) {
+            autoSaveService.record(edit);
+        }
+    }
+
+    // Records inserted, removed and reordered rows for undo, all of one list change as one step.
+    // Runs before the engine releases removed rows, while their values can still be read.
+    private void recordRowChanges(ListChangeListener.Change<? extends StudentRow> change) {
+        if (!history.isRecording()) {
+            return;
+        }
+        history.beginGroup();
+        try {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    int[] newPositions = new int[change.getTo() - change.getFrom()];
+                    boolean moved = false;
+                    for (int i = 0; i < newPositions.length; i++) {
+                        newPositions[i] = change.getPermutation(change.getFrom() + i);
+                        moved |= newPositions[i] != change.getFrom() + i;
+                    }
+                    if (moved) {
+                        history.rowsMoved(change.getFrom(), newPositions);
+                    }
+                    continue;
+                }
+                if (change.wasRemoved()) {
+                    List<String[]> values = new ArrayList<>(change.getRemovedSize());
+                    for (StudentRow row : change.getRemoved()) {
+                        values.add(rowValues(row));
+                    }
+                    history.rowsRemoved(change.getFrom(), values);
+                }
+                if (change.wasAdded()) {
+                    history.rowsInserted(change.getFrom(), change.getAddedSize());
+                }
+            }
+        } finally {
+            history.endGroup();
+        }
+    }
+
+    private void writeToCsv(Writer writer) throws IOException {
+        engine.writeCsv(writer);
+    }
+
+    // Restores the last snapshot plus the journalled edits made after it. Rows left empty are
+    // dropped, then the cleaned-up roster becomes the new snapshot.
+    private void loadAutoSavedData() {
+        RosterSnapshot saved;
+        try {
+            saved = autoSaveService.load();
+        } catch (IOException e) {
+            System.err.println("Failed to load auto-saved data: " + e.getMessage());
+            return; // Leave the files alone rather than overwrite them with an empty roster
+        }
+        if (saved == null) {
+            return;
+        }
+        applyRoster(saved);
+        data.removeIf(this::isRowEmpty);
+        autoSaveService.save(createSnapshot());
+        history.clear(); // Nothing to undo before the first edit
+    }
+
+    private void importFromCSV() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import from CSV");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        File file = fileChooser.showOpenDialog(null);
+        if (file == null) {
+            return;
+        }
+        if (importTask != null) {
+            showAlert("Import in Progress", "Please wait for the current import to finish or cancel it first.");
+            return;
+        }
+
+        importTask = new CsvImportTask(file);
+        history.beginGroup(); // The import is undone as a whole
+        importProgressBar.progressProperty().bind(importTask.progressProperty());
+        importStatusLabel.textProperty().bind(importTask.messageProperty());
+        importStatusBar.setVisible(true);
+        importStatusBar.setManaged(true);
+        importTask.setOnSucceeded(e -> {
+            Integer rowCount = importTask.getValue();
+            finishImport();
+            if (rowCount == null) {
+                showAlert("Import Error",
+                        "The selected CSV file is empty or malformed (missing subject/max marks header).");
+            } else {
+                showAlert("Success", "Successfully imported data from " + file.getName());
+            }
+        });
+        importTask.setOnCancelled(e -> finishImport());
+        importTask.setOnFailed(e -> {
+            Throwable error = importTask.getException();
+            finishImport();
+            showAlert("Import Error", "Failed to read the file. Please ensure it is a valid CSV file.");
+            error.printStackTrace();
+        });
+
+        Thread thread = new Thread(importTask, "csv-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Runs on the FX thread once the import task has stopped. A cancelled or failed import puts
+    // the previous roster back; either way the result is autosaved as one snapshot.
+    private void finishImport() {
+        CsvImportTask task = importTask;
+        task.publishPendingRows();
+        if (task.getState() != Worker.State.SUCCEEDED || task.getValue() == null) {
+            applyRoster(task.previousRoster);
+            history.cancelGroup(); // Back where it started, so there is nothing to undo
+        } else {
+            history.endGroup();
+        }
+        importTask = null;
+        importProgressBar.progressProperty().unbind();
+        importStatusLabel.textProperty().unbind();
+        importStatusBar.setVisible(false);
+        importStatusBar.setManaged(false);
+        autoSaveService.save(createSnapshot());
+        scheduleSummaryRefresh();
+    }
+
+    private void exportToCSV() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save as CSV");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        File file = fileChooser.showSaveDialog(null);
+        if (file != null) {
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                writeToCsv(writer);
+                showAlert("Success", "Data exported successfully to " + file.getName());
+            } catch (IOException e) {
+                showAlert("Error", "Failed to export data to CSV.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void applyRoster(RosterSnapshot roster) {
+        applySubjects(roster.getSubjects(), roster.getMaxMarks());
+        List<StudentRow> rows = new ArrayList<>(roster.getRows().size());
+        for (String[] values : roster.getRows()) {
+            rows.add(createRow(values));
+        }
+        data.setAll(rows);
+    }
+
+    private void applySubjects(List<String> subjectNames, List<String> maxMarksValues) {
+        String subjectsText = String.join(",", subjectNames);
+        String maxMarksText = String.join(",", maxMarksValues);
+        subjectNamesField.setText(subjectsText);
+        maxMarksField.setText(maxMarksText);
+        updateSubjects(subjectsText, maxMarksText);
+    }
+
+    private void clearAllData() {
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Confirm Clear");
+        alert.setHeaderText("Clear All Data");
+        alert.setContentText("Are you sure you want to delete all subjects and student data? Undo brings them back.");
+        alert.getDialogPane().getStyleClass().add("custom-dialog");
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isPresent() && result.get() == ButtonType.OK) {
+            history.beginGroup();
+            try {
+                subjects.clear();
+                maxMarks.clear();
+                data.clear();
+                subjectNamesField.setText("");
+                maxMarksField.setText("");
+                updateSubjects("", "");
+            } finally {
+                history.endGroup();
+            }
+            autoSaveService.delete();
+        }
+    }
+
+    private void showAlert(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.getDialogPane().getStyleClass().add("custom-dialog");
+        alert.showAndWait();
+    }
+
+    // Pastes cells copied from a spreadsheet (tab- or comma-separated text) with their top left
+    // corner at the focused cell, adding rows at the end as needed. The whole block is one change
+    // to the engine, one repaint and one journal record.
+    private void pasteCells() {
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String[][] block = CsvReader.readBlock(text);
+        TablePosition<?, ?> focused = tableView.getFocusModel().getFocusedCell();
+        int row = focused != null && focused.getRow() >= 0 ? focused.getRow() : 0;
+        int column = Math.max(1, focusedDataColumn());
+        int width = Math.min(block.length > 0 ? block[0].length : 0, 2 + subjects.size() - column + 1);
+        if (width <= 0) {
+            return;
+        }
+        for (int i = 0; i < block.length; i++) {
+            block[i] = Arrays.copyOf(block[i], width); // Columns past the last subject are dropped
+        }
+        history.beginGroup(); // Undone together with the rows it added
+        try {
+            int missingRows = row + block.length - data.size();
+            if (missingRows > 0) {
+                List<StudentRow> newRows = new ArrayList<>(missingRows);
+                for (int i = 0; i < missingRows; i++) {
+                    newRows.add(createRow(new String[2 + subjects.size()]));
+                }
+                data.addAll(newRows);
+            }
+            writeCells(row, column, block);
+        } finally {
+            history.endGroup();
+        }
+    }
+
+    // Copies the focused column's value in the first selected row into the selected rows below it
+    // (or the row above into a single selected row), formulas adjusted to their new rows
+    private void fillDown() {
+        int column = focusedDataColumn();
+        List<Integer> selected = tableView.getSelectionModel().getSelectedIndices();
+        if (column < 1 || selected.isEmpty()) {
+            return;
+        }
+        int first = Collections.min(selected);
+        int last = Collections.max(selected);
+        if (first == last) {
+            if (first == 0) {
+                return;
+            }
+            first--;
+        }
+        String[][] before = engine.getValues(first + 1, column, last - first, 1);
+        cellsWritten(first + 1, column, before, engine.fillDown(first, last, column, column));
+    }
+
+    // Copies the focused cell of each selected row into the subject columns to its right,
+    // formulas adjusted to their new columns
+    private void fillRight() {
+        int column = focusedDataColumn();
+        List<Integer> selected = tableView.getSelectionModel().getSelectedIndices();
+        int lastColumn = 2 + subjects.size();
+        if (column < 1 || column >= lastColumn || selected.isEmpty()) {
+            return;
+        }
+        int first = Collections.min(selected);
+        int last = Collections.max(selected);
+        String[][] before = engine.getValues(first, column + 1, last - first + 1, lastColumn - column);
+        cellsWritten(first, column + 1, before, engine.fillRight(first, last, column, lastColumn));
+    }
+
+    // Data index of the focused table column, or -1 if it is not ROLL NO, NAME or a subject
+    private int focusedDataColumn() {
+        TablePosition<?, ?> focused = tableView.getFocusModel().getFocusedCell();
+        if (focused == null || focused.getTableColumn() == null) {
+            return -1;
+        }
+        int index = tableView.getColumns().indexOf(focused.getTableColumn()); // S.NO. comes first
+        return index >= 1 && index <= 2 + subjects.size() ? index : -1;
+    }
+
+    // Writes a block of cells as one change, values[i][j] going to row + i, column + j
+    private void writeCells(int row, int column, String[][] block) {
+        String[][] before = history.isRecording() && block.length > 0
+                ? engine.getValues(row, column, block.length, block[0].length)
+                : null;
+        engine.setValues(row, column, block);
+        cellsWritten(row, column, before, block);
+    }
+
+    // Records cells the engine has just written for undo (unless before is null) and in the
+    // journal, and brings the summary up to date
+    private void cellsWritten(int row, int column, String[][] before, String[][] block) {
+        if (before != null) {
+            history.cellsChanged(row, column, before, block);
+        }
+        recordCells(row, column, block);
+        scheduleSummaryRefresh();
+    }
+
+    // Journals a block of cells written at once as a single record
+    private void recordCells(int row, int column, String[][] block) {
+        int cells = block.length * (block.length > 0 ? block[0].length : 0);
+        if (cells == 0) {
+            return;
+        }
+        if (cells == 1) {
+            autoSaveService.record(RosterEdit.setCell(row, column, block[0][0]));
+        } else if (cells > BULK_CHANGE_CELLS) {
+            autoSaveService.save(createSnapshot());
+        } else {
+            autoSaveService.record(RosterEdit.setCells(row, column, block));
+        }
+    }
+
+    private void addRowAt(int index) {
+        String[] emptyValues = new String[2 + subjects.size()];
+        Arrays.fill(emptyValues, "");
+        data.add(index, createRow(emptyValues));
+    }
+
+    private void handleDeleteSelectedRows() {
+        List<StudentRow> selectedRows = new ArrayList<>(
+                tableView.getSelectionModel().getSelectedItems());
+        if (selectedRows.isEmpty()) {
+            showAlert("No Selection", "Please select one or more rows to delete.");
+            return;
+        }
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Confirm Deletion");
+        alert.setHeaderText("Delete Selected Rows");
+        alert.setContentText(
+                "Are you sure you want to delete the " + selectedRows.size() + " selected row(s)? Undo brings them back.");
+        alert.getDialogPane().getStyleClass().add("custom-dialog");
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isPresent() && result.get() == ButtonType.OK) {
+            // Remove by identity: removeAll would also drop unselected rows with identical contents
+            Set<StudentRow> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+            toRemove.addAll(selectedRows);
+            data.removeIf(toRemove::contains);
+        }
+    }
+
+    private void handleManualCleanup() {
+        int initialSize = data.size();
+        data.removeIf(this::isRowEmpty);
+        int rowsRemoved = initialSize - data.size();
+        if (rowsRemoved > 0) {
+            showAlert("Cleanup Complete", "Removed " + rowsRemoved + " empty row(s).");
+        } else {
+            showAlert("No Empty Rows", "No empty rows were found to clean up.");
+        }
+    }
+
+    private boolean isRowEmpty(StudentRow row) {
+        return engine.isRowEmpty(row);
+    }
+
+    private StudentRow createRow(String... values) {
+        return engine.createRow(values);
+    }
+
+    // Total, percentage, grade, average, highest and lowest mark of a student row, computed in one
+    // pass and cached by the calculator until the row or the max marks change.
+    private RowStats getRowStats(StudentRow row) {
+        return engine.rowStats(rowPositions.indexOf(row));
+    }
+
+    // The row's statistics as an observable value for the derived columns, created once per row
+    // and brought up to date each time a cell asks for it. The calculator hands out the same
+    // RowStats until the row changes, so an unchanged row does not notify.
+    private ObservableValue<RowStats> statsValue(StudentRow row) {
+        ObjectProperty<RowStats> value = rowStatsValues.computeIfAbsent(row, r -> new SimpleObjectProperty<>());
+        value.set(getRowStats(row));
+        return value;
+    }
+
+    // Text shown for a cell: formulas are evaluated (or served from the calculator's cache),
+    // plain values are returned as is
+    private String getProcessedValue(int rowIndex, int columnIndex) {
+        return engine.displayValue(rowIndex, columnIndex);
+    }
+
+    // Replays undone and redone changes through the same paths as edits made in the table, so
+    // they are journalled, repainted and summarised the same way
+    private final class HistoryTarget implements EditHistory.Target {
+        @Override
+        public void setCells(int row, int column, String[][] values) {
+            writeCells(row, column, values);
+        }
+
+        @Override
+        public void insertRows(int position, List<String[]> rows) {
+            List<StudentRow> newRows = new ArrayList<>(rows.size());
+            for (String[] values : rows) {
+                newRows.add(createRow(values));
+            }
+            data.addAll(position, newRows);
+        }
+
+        @Override
+        public List<String[]> removeRows(int position, int count) {
+            List<String[]> values = new ArrayList<>(count);
+            for (StudentRow row : data.subList(position, position + count)) {
+                values.add(rowValues(row));
+            }
+            data.remove(position, position + count);
+            return values;
+        }
+
+        @Override
+        public void moveRows(int from, int[] newPositions) {
+            Map<StudentRow, Integer> targets = new IdentityHashMap<>();
+            for (int i = 0; i < newPositions.length; i++) {
+                targets.put(data.get(from + i), newPositions[i]);
+            }
+            tableView.getSortOrder().clear(); // The rows no longer follow a sorted column
+            // One permutation, like the sort being undone or redone
+            FXCollections.sort(data, Comparator.comparingInt(
+                    (StudentRow row) -> targets.getOrDefault(row, rowPositions.indexOf(row))));
+        }
+
+        @Override
+        public void setSubjects(List<String> subjects, List<String> maxMarks) {
+            applySubjects(subjects, maxMarks);
+        }
+    }
+
+    // Cells that tableChanges repaints when what they show has changed
+    private interface ChangeAwareCell {
+        void refreshIfChanged(TableChanges changes);
+    }
+
+    // Collects the changes the engine reports and repaints the affected cells once, on the next
+    // pulse, however many changes came in meanwhile: an edit repaints the cells whose value it
+    // changed and the statistics of their rows, and a bulk change (import, subject update,
+    // recalculation) all visible cells in one go. Unlike tableView.refresh(), cells are updated
+    // in place instead of being rebuilt.
+    private final class TableChanges implements GradeEngine.ChangeListener {
+        // Cells created by the table; the ones it has dropped disappear with garbage collection
+        private final Set<ChangeAwareCell> cells = Collections.newSetFromMap(new WeakHashMap<>());
+        private final Set<Long> changedCells = new HashSet<>();
+        private final Set<Integer> changedRows = new HashSet<>();
+        private boolean everything;
+        private boolean scheduled;
+
+        <C extends ChangeAwareCell> C track(C cell) {
+            cells.add(cell);
+            return cell;
+        }
+
+        @Override
+        public void cellsChanged(Set<Long> changed) {
+            if (!everything) {
+                for (long cell : changed) {
+                    changedCells.add(cell);
+                    changedRows.add(SheetCalculator.rowOf(cell));
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void sheetChanged() {
+            everything = true;
+            changedCells.clear();
+            changedRows.clear();
+            schedule();
+        }
+
+        boolean covers(int row, int column) {
+            return everything || changedCells.contains(SheetCalculator.cellKey(row, column));
+        }
+
+        boolean coversRow(int row) {
+            return everything || changedRows.contains(row);
+        }
+
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                Platform.runLater(this::publish);
+            }
+        }
+
+        private void publish() {
+            scheduled = false;
+            for (ChangeAwareCell cell : new ArrayList<>(cells)) {
+                cell.refreshIfChanged(this);
+            }
+            changedCells.clear();
+            changedRows.clear();
+            everything = false;
+        }
+    }
+
+    // Value a table cell currently gets from its column, or null if the cell is not showing a row
+    private static <T> T currentValue(TableCell<StudentRow, T> cell) {
+        TableColumn<StudentRow, T> column = cell.getTableColumn();
+        if (cell.isEmpty() || column == null || column.getTableView() == null
+                || cell.getIndex() < 0 || cell.getIndex() >= column.getTableView().getItems().size()) {
+            return null;
+        }
+        return column.getCellData(cell.getIndex());
+    }
+
+    // The one text field cells are edited with, lent to whichever cell is being edited, so that
+    // the table only holds plain text cells however many subjects it shows
+    private final class CellEditor {
+        private final TextField textField = new TextField();
+        private EditableCell cell; // Cell being edited, or null
+
+        CellEditor() {
+            textField.focusedProperty().addListener((obs, wasFocused, isFocused) -> {
+                if (cell == null) {
+                    return;
+                }
+                if (wasFocused && !isFocused) {
+                    cell.commitEdit(textField.getText());
+                } else if (isFocused) {
+                    cell.getStyleClass().add("focused-cell"); // Add focused style
+                } else {
+                    cell.getStyleClass().remove("focused-cell"); // Remove focused style
+                }
+            });
+            textField.setOnAction(evt -> {
+                if (cell != null) {
+                    cell.commitEdit(textField.getText());
+                }
+            });
+            textField.setOnKeyPressed(event -> {
+                if (cell != null) {
+                    cell.handleKey(event);
+                }
+            });
+        }
+
+        // Moves the field into the cell, showing its raw value
+        void attach(EditableCell cell, String text) {
+            detach(this.cell);
+            this.cell = cell;
+            textField.setText(text);
+            cell.setGraphic(textField);
+            Platform.runLater(() -> {
+                if (this.cell == cell) {
+                    textField.requestFocus();
+                    textField.selectAll();
+                }
+            });
+        }
+
+        void detach(EditableCell cell) {
+            if (cell != null && this.cell == cell) {
+                this.cell = null; // First, so losing focus below does not commit again
+                cell.getStyleClass().remove("focused-cell");
+                if (cell.getGraphic() == textField) {
+                    cell.setGraphic(null);
+                }
+            }
+        }
+
+        boolean isEditing(EditableCell cell) {
+            return this.cell == cell;
+        }
+    }
+
+    // ROLL NO, NAME and subject cells. They show the processed value as plain text and borrow the
+    // shared CellEditor while being edited.
+    public class EditableCell extends TableCell<StudentRow, String> implements ChangeAwareCell {
+        private final int columnIndex; // Data index of the column this cell belongs to
+
+        public EditableCell(int columnIndex) {
+            this.columnIndex = columnIndex;
+            getStyleClass().add("editing-cell");
+        }
+
+        @Override
+        public void refreshIfChanged(TableChanges changes) {
+            if (changes.covers(getIndex(), columnIndex) && !cellEditor.isEditing(this)) {
+                String value = currentValue(this);
+                if (value != null) {
+                    updateItem(value, false);
+                }
+            }
+        }
+
+        // Arrow keys, Tab and Enter move the editor to the neighbouring cell; Enter below the last
+        // row adds a row. The typed text is committed before moving.
+        private void handleKey(KeyEvent event) {
+            if (event.getCode() == null) {
+                return;
+            }
+
+            TableColumn<StudentRow, ?> nextColumn = null;
+            int currentRowIndex = getIndex();
+            int newRowIndex = currentRowIndex;
+            boolean handled = false;
+
+            switch (event.getCode()) {
+                case UP:
+                    newRowIndex--;
+                    handled = true;
+                    break;
+                case DOWN:
+                    newRowIndex++;
+                    handled = true;
+                    break;
+                case LEFT:
+                    nextColumn = getNextColumn(false);
+                    handled = true;
+                    break;
+                case RIGHT:
+                    nextColumn = getNextColumn(true);
+                    handled = true;
+                    break;
+                case TAB:
+                    nextColumn = getNextColumn(!event.isShiftDown());
+                    handled = true;
+                    break;
+                case ENTER:
+                    newRowIndex++;
+                    handled = true;
+                    break;
+                default:
+                    break;
+            }
+
+            if (handled) {
+                event.consume();
+                TableView<StudentRow> table = getTableView();
+                TableColumn<StudentRow, String> column = getTableColumn();
+                String text = cellEditor.textField.getText();
+                if (!text.equals(getItem())) {
+                    commitEdit(text);
+                }
+                if (nextColumn != null) {
+                    table.edit(currentRowIndex, nextColumn);
+                } else if (newRowIndex >= 0 && newRowIndex < table.getItems().size()) {
+                    table.edit(newRowIndex, column);
+                } else if (newRowIndex == table.getItems().size()
+                        && (event.getCode() == KeyCode.DOWN || event.getCode() == KeyCode.ENTER)) {
+                    Platform.runLater(() -> {
+                        addRowAt(data.size());
+                        if (!data.isEmpty()) {
+                            TableColumn<StudentRow, ?> firstEditableCol = getFirstEditableColumn(table);
+                            if (firstEditableCol != null) {
+                                table.edit(data.size() - 1, firstEditableCol);
+                            }
+                        }
+                    });
+                }
+            }
+        }
+
+        private TableColumn<StudentRow, ?> getNextColumn(boolean forward) {
+            List<TableColumn<StudentRow, ?>> columns = getTableView().getVisibleLeafColumns();
+            int currentIndex = columns.indexOf(getTableColumn());
+            int nextIndex = currentIndex;
+            while (true) {
+                nextIndex = forward ? nextIndex + 1 : nextIndex - 1;
+                if (nextIndex < 0 || nextIndex >= columns.size()) {
+                    return null;
+                }
+                TableColumn<StudentRow, ?> nextCol = columns.get(nextIndex);
+                if (nextCol.isEditable() && (getTableView().getColumns().indexOf(nextCol) <= (2 + subjects.size()))) {
+                    return nextCol;
+                }
+            }
+        }
+
+        private TableColumn<StudentRow, ?> getFirstEditableColumn(TableView<StudentRow> table) {
+            if (!table.getColumns().isEmpty() && table.getColumns().size() > 1) {
+                TableColumn<StudentRow, ?> rollNoCol = table.getColumns().get(1);
+                if (rollNoCol.isEditable()) {
+                    return rollNoCol;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void startEdit() {
+            super.startEdit();
+            if (isEmpty() || !isEditing()) {
+                return;
+            }
+            setText(null);
+            // Display raw item value for editing, not the processed result
+            cellEditor.attach(this, getItem());
+        }
+
+        @Override
+        public void cancelEdit() {
+            super.cancelEdit();
+            cellEditor.detach(this);
+            showProcessedValue(getItem());
+        }
+
+        @Override
+        public void commitEdit(String newValue) {
+            super.commitEdit(newValue);
+            if (!isEditing()) {
+                cellEditor.detach(this);
+            }
+        }
+
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty) {
+                cellEditor.detach(this);
+                setText(null);
+                setGraphic(null);
+                getStyleClass().remove("cell-error");
+            } else if (isEditing() && cellEditor.isEditing(this)) {
+                cellEditor.textField.setText(item);
+            } else {
+                cellEditor.detach(this);
+                showProcessedValue(item); // Display the processed value when not editing
+            }
+        }
+
+        private void showProcessedValue(String item) {
+            if (isEmpty()) {
+                return;
+            }
+            String processed = getProcessedValue(getIndex(), columnIndex);
+            setText(processed);
+            setGraphic(null);
+            updateCellStyle(item, processed); // Apply style based on raw item value
+        }
+
+        // Applies "cell-error" style if the processed value indicates an error
+        private void updateCellStyle(String item, String processed) {
+            boolean error = item != null && !item.isEmpty() && processed.contains("Error");
+            if (error != getStyleClass().contains("cell-error")) {
+                if (error) {
+                    getStyleClass().add("cell-error");
+                } else {
+                    getStyleClass().remove("cell-error");
+                }
+            }
+        }
+    }
+
+    // Parses a CSV file on a background thread and appends the students to the table in batches,
+    // so the UI stays responsive and shows progress while large files load. Batches are turned into
+    // store rows on the FX thread; batches that pile up while it is busy are added in one pulse.
+    private final class CsvImportTask extends Task<Integer> {
+        private static final int BATCH_ROWS = 1000;
+        // Files at least this large take the memory-mapped path
+        private static final long BULK_IMPORT_BYTES = 16L * 1024 * 1024;
+
+        private final File file;
+        // Restored if the import is cancelled or fails
+        private final RosterSnapshot previousRoster = createSnapshot();
+        private final ConcurrentLinkedQueue<Supplier<List<StudentRow>>> pendingBatches = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+        CsvImportTask(File file) {
+            this.file = file;
+        }
+
+        // Number of students imported, or null if the file has no subject/max marks header
+        @Override
+        protected Integer call() throws IOException {
+            long size = Math.max(1, file.length());
+            updateMessage("Importing " + file.getName() + "…");
+            if (size >= BULK_IMPORT_BYTES) {
+                return bulkImport();
+            }
+            try (CsvReader csv = new CsvReader(
+                    new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String[] subjectsRecord = csv.readRecord();
+                String[] maxMarksRecord = csv.readRecord();
+                if (subjectsRecord == null || maxMarksRecord == null) {
+                    return null;
+                }
+                replaceSubjects(RosterSnapshot.headerValues(subjectsRecord),
+                        RosterSnapshot.headerValues(maxMarksRecord));
+
+                int rowCount = 0;
+                List<String[]> batch = new ArrayList<>(BATCH_ROWS);
+                String[] values;
+                while ((values = csv.readRecord()) != null) {
+                    if (isCancelled()) {
+                        return rowCount;
+                    }
+                    if (!RosterSnapshot.isStudentRecord(values)) {
+                        continue;
+                    }
+                    batch.add(values);
+                    rowCount++;
+                    if (batch.size() == BATCH_ROWS) {
+                        publish(rowsFrom(batch));
+                        batch = new ArrayList<>(BATCH_ROWS);
+                        updateProgress(Math.min(csv.charsRead(), size), size);
+                        updateMessage(String.format("Imported %,d students…", rowCount));
+                    }
+                }
+                publish(rowsFrom(batch));
+                updateProgress(size, size);
+                return rowCount;
+            }
+        }
+
+        // Large files are scanned memory-mapped into primitive columns first, which are then copied
+        // into the store batch by batch without going through text
+        private Integer bulkImport() throws IOException {
+            ColumnarRoster roster = MappedCsvImporter.read(file.toPath(), (bytesRead, totalBytes, rowsRead) -> {
+                updateProgress(bytesRead, totalBytes);
+                updateMessage(String.format("Read %,d students…", rowsRead));
+                return !isCancelled();
+            });
+            if (roster == null) {
+                return isCancelled() ? 0 : null;
+            }
+
+            int rowCount = roster.rowCount();
+            replaceSubjects(roster.getSubjects(), roster.getMaxMarks());
+            updateMessage("Adding students to the table…");
+            for (int start = 0; start < rowCount && !isCancelled(); start += BATCH_ROWS) {
+                int from = start;
+                int end = Math.min(rowCount, start + BATCH_ROWS);
+                publish(() -> engine.createRows(roster, from, end));
+                updateProgress(end, rowCount);
+            }
+            return rowCount;
+        }
+
+        private void replaceSubjects(List<String> importedSubjects, List<String> importedMaxMarks) {
+            Platform.runLater(() -> {
+                if (!isCancelled()) {
+                    applySubjects(importedSubjects, importedMaxMarks);
+                    data.clear();
+                }
+            });
+        }
+
+        private Supplier<List<StudentRow>> rowsFrom(List<String[]> batch) {
+            return () -> {
+                List<StudentRow> rows = new ArrayList<>(batch.size());
+                for (String[] values : batch) {
+                    rows.add(createRow(values));
+                }
+                return rows;
+            };
+        }
+
+        private void publish(Supplier<List<StudentRow>> batch) {
+            pendingBatches.add(batch);
+            if (publishScheduled.compareAndSet(false, true)) {
+                Platform.runLater(this::publishPendingRows);
+            }
+        }
+
+        // FX thread only
+        void publishPendingRows() {
+            publishScheduled.set(false);
+            List<StudentRow> rows = new ArrayList<>();
+            Supplier<List<StudentRow>> batch;
+            while ((batch = pendingBatches.poll()) != null) {
+                if (!isCancelled()) {
+                    rows.addAll(batch.get());
+                }
+            }
+            if (!rows.isEmpty()) {
+                data.addAll(rows);
+            }
+        }
+    }
+
+    // Tracks the position of every row in an observable list by identity. Positions are updated
+    // from list change events (inserts, deletes, replacements and sorts), so lookups stay O(1).
+    private static final class RowPositions<T> implements ListChangeListener<T> {
+        private final ObservableList<T> rows;
+        private final Map<T, Integer> positions = new IdentityHashMap<>();
+
+        RowPositions(ObservableList<T> rows) {
+            this.rows = rows;
+            reindexFrom(0);
+            rows.addListener(this);
+        }
+
+        int indexOf(T row) {
+            Integer index = positions.get(row);
+            return index != null ? index : -1;
+        }
+
+        @Override
+        public void onChanged(Change<? extends T> change) {
+            int firstShifted = Integer.MAX_VALUE;
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    for (int i = change.getFrom(); i < change.getTo(); i++) {
+                        positions.put(rows.get(i), i);
+                    }
+                } else if (change.wasAdded() || change.wasRemoved()) {
+                    for (T removed : change.getRemoved()) {
+                        positions.remove(removed);
+                    }
+                    firstShifted = Math.min(firstShifted, change.getFrom());
+                }
+            }
+            if (firstShifted != Integer.MAX_VALUE) {
+                reindexFrom(firstShifted);
+            }
+        }
+
+        // Rows from the given position onwards moved after an insert or delete
+        private void reindexFrom(int from) {
+            for (int i = from; i < rows.size(); i++) {
+                positions.put(rows.get(i), i);
+            }
+        }
+    }
+
+    // Cell of a derived column: formats its figure of the row's statistics, and does nothing when
+    // laid out again with the same statistics
+    public static class StatsCell extends TableCell<StudentRow, RowStats> implements ChangeAwareCell {
+        private final Function<RowStats, String> text;
+        private RowStats shown;
+
+        public StatsCell(Function<RowStats, String> text) {
+            this.text = text;
+        }
+
+        @Override
+        public void refreshIfChanged(TableChanges changes) {
+            if (changes.coversRow(getIndex())) {
+                RowStats stats = currentValue(this);
+                if (stats != null) {
+                    updateItem(stats, false);
+                }
+            }
+        }
+
+        @Override
+        protected void updateItem(RowStats item, boolean empty) {
+            super.updateItem(item, empty);
+            RowStats stats = empty ? null : item;
+            if (stats == shown) {
+                return;
+            }
+            shown = stats;
+            setText(stats == null ? null : text.apply(stats));
+        }
+    }
+
+    public static class GradeCell extends TableCell<StudentRow, RowStats> implements ChangeAwareCell {
+        private final Label gradeLabel = new Label();
+        private RowStats shown;
+
+        public GradeCell() {
+            gradeLabel.getStyleClass().add("grade-label");
+        }
+
+        @Override
+        public void refreshIfChanged(TableChanges changes) {
+            if (changes.coversRow(getIndex())) {
+                RowStats stats = currentValue(this);
+                if (stats != null) {
+                    updateItem(stats, false);
+                }
+            }
+        }
+
+        @Override
+        protected void updateItem(RowStats item, boolean empty) {
+            super.updateItem(item, empty);
+            RowStats stats = empty ? null : item;
+            if (stats == shown) {
+                return;
+            }
+            shown = stats;
+            getStyleClass().removeAll("grade-a", "grade-b", "grade-c", "grade-d", "grade-f", "grade-n-a");
+            if (stats == null) {
+                setGraphic(null);
+                setText(null);
+            } else {
+                String grade = stats.getGrade();
+                gradeLabel.setText(grade);
+                getStyleClass().add("grade-" + grade.toLowerCase().replace("/", ""));
+                setGraphic(gradeLabel);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package gradetracker.bench;
+
+import gradetracker.io.MappedCsvImporter;
+import gradetracker.io.RosterSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Roster file I/O: exporting (writeToCsv), the streaming CSV import (importDataFromReader) and
+// the memory-mapped bulk import, all against a file in the temporary directory.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Djava.awt.headless=true" })
+public class CsvBenchmarks {
+
+    @Param({ "100", "10000", "1000000" })
+    int rows;
+
+    @Param({ "5", "20" })
+    int subjects;
+
+    @Param({ "0", "0.1", "0.5" })
+    double formulaDensity;
+
+    private RosterSnapshot snapshot;
+    private Path inputFile;
+    private Path outputFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        snapshot = new SampleRoster(rows, subjects, formulaDensity).snapshot();
+        inputFile = Files.createTempFile("roster-bench", ".csv");
+        outputFile = Files.createTempFile("roster-bench-out", ".csv");
+        try (Writer writer = Files.newBufferedWriter(inputFile, StandardCharsets.UTF_8)) {
+            snapshot.writeCsv(writer);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(inputFile);
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void writeCsv() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+            snapshot.writeCsv(writer);
+        }
+    }
+
+    @Benchmark
+    public RosterSnapshot readCsv() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(inputFile, StandardCharsets.UTF_8)) {
+            return RosterSnapshot.readCsv(reader);
+        }
+    }
+
+    @Benchmark
+    public Object mappedImport() throws IOException {
+        return MappedCsvImporter.read(inputFile, (bytesRead, totalBytes, rowsRead) -> true);
+    }
+}
@@ -0,0 +1,83 @@
+package gradetracker.bench;
+
+import gradetracker.calc.SheetModel;
+import gradetracker.engine.GradeEngine;
+import gradetracker.formula.ColumnLetters;
+import gradetracker.io.RosterSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Generated roster used by the benchmarks: the same engine the application drives, filled with
+// reproducible marks. A share of the subject cells given by formulaDensity holds formulas
+// instead of marks, mixing arithmetic on cells of the same row, SUM/AVERAGE over the row and
+// AVERAGE down a column.
+final class SampleRoster {
+
+    final int rowCount;
+    final int subjectCount;
+    final GradeEngine engine = new GradeEngine();
+
+    SampleRoster(int rowCount, int subjectCount, double formulaDensity) {
+        if (subjectCount < 1) {
+            throw new IllegalArgumentException("subjects must be at least 1");
+        }
+        this.rowCount = rowCount;
+        this.subjectCount = subjectCount;
+        List<String> subjects = new ArrayList<>();
+        List<String> maxMarks = new ArrayList<>();
+        for (int i = 0; i < subjectCount; i++) {
+            subjects.add("Subject" + (i + 1));
+            maxMarks.add("100");
+        }
+        engine.setSubjects(subjects, maxMarks);
+
+        Random random = new Random(42);
+        String[] values = new String[2 + subjectCount];
+        for (int row = 0; row < rowCount; row++) {
+            values[0] = String.valueOf(1000 + row);
+            values[1] = "Student " + row;
+            for (int subject = 0; subject < subjectCount; subject++) {
+                values[2 + subject] = random.nextDouble() < formulaDensity
+                        ? randomFormula(random, row + 1, subject)
+                        : randomMark(random);
+            }
+            engine.addRow(values);
+        }
+    }
+
+    RosterSnapshot snapshot() {
+        return engine.snapshot();
+    }
+    private static String randomMark(Random random) {
+        int mark = random.nextInt(101);
+        return random.nextInt(4) == 0 ? mark + ".5" : String.valueOf(mark);
+    }
+
+    // Formulas only read rows above their own, so they never form cycles, and evaluating the
+    // sheet top to bottom keeps the recursion shallow
+    private String randomFormula(Random random, int formulaRow, int subject) {
+        if (formulaRow == 1) {
+            return "=50*2-" + random.nextInt(50);
+        }
+        int previous = formulaRow - 1;
+        String first = letter(0);
+        String last = letter(subjectCount - 1);
+        switch (random.nextInt(3)) {
+            case 0:
+                return "=" + letter(random.nextInt(subjectCount)) + previous + "*0.5+10";
+            case 1:
+                return random.nextBoolean()
+                        ? "=SUM(" + first + previous + ":" + last + previous + ")/" + subjectCount
+                        : "=AVERAGE(" + first + previous + ":" + last + previous + ")";
+            default:
+                int top = Math.max(1, formulaRow - 10);
+                return "=AVERAGE(" + letter(subject) + top + ":" + letter(subject) + previous + ")";
+        }
+    }
+
+    private static String letter(int subject) {
+        return ColumnLetters.toLetters(SheetModel.FIRST_SUBJECT_COLUMN + subject);
+    }
+}
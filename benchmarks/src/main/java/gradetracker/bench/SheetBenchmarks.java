@@ -0,0 +1,117 @@
+package gradetracker.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// Recalculation paths of the grade sheet: evaluating every cell the way the table displays them,
+// per-student statistics, the class average, and the incremental update after one edit. The
+// "cold" benchmarks drop all cached results first, as a structural change (insert, delete, sort,
+// new subjects) does in the application.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx6g", "-Djava.awt.headless=true" })
+public class SheetBenchmarks {
+
+    @Param({ "100", "10000", "1000000" })
+    int rows;
+
+    @Param({ "5", "20" })
+    int subjects;
+
+    @Param({ "0", "0.1", "0.5" })
+    double formulaDensity;
+
+    private SampleRoster roster;
+    private int editedRow;
+
+    @Setup
+    public void setUp() {
+        roster = new SampleRoster(rows, subjects, formulaDensity);
+    }
+
+    // Every subject cell as shown in the table (getProcessedValue)
+    @Benchmark
+    public void displayAllCellsCold(Blackhole blackhole) {
+        dropCachedResults();
+        for (int row = 0; row < rows; row++) {
+            for (int subject = 0; subject < subjects; subject++) {
+                blackhole.consume(roster.engine.displayValue(row, 3 + subject));
+            }
+        }
+    }
+
+    // Total, percentage and grade of every student (the derived columns)
+    @Benchmark
+    public void rowStatsCold(Blackhole blackhole) {
+        dropCachedResults();
+        for (int row = 0; row < rows; row++) {
+            blackhole.consume(roster.engine.rowStats(row).getPercentage());
+        }
+    }
+
+    // Class summary (calculateOverallAverage) right after a structural change
+    @Benchmark
+    public double classAverageCold() {
+        dropCachedResults();
+        return classAverage();
+    }
+
+    // Class summary when every row's statistics are already cached
+    @Benchmark
+    public double classAverageCached() {
+        return classAverage();
+    }
+
+    // Full class summary (mean, spread, percentiles, grades, subject averages) from scratch
+    @Benchmark
+    public Object classSummaryCold() {
+        dropCachedResults();
+        return roster.engine.classSummary();
+    }
+
+    // One mark edited while the class summary is kept up to date, then read again
+    @Benchmark
+    public Object editMarkWithSummary() {
+        roster.engine.classSummary();
+        editedRow = (editedRow + 7919) % rows;
+        int column = 3 + editedRow % subjects;
+        roster.engine.setValue(editedRow, column, String.valueOf(editedRow % 101));
+        return roster.engine.classSummary();
+    }
+
+    // One mark edited, followed by re-reading every cell the edit affected
+    @Benchmark
+    public void editMark(Blackhole blackhole) {
+        editedRow = (editedRow + 7919) % rows;
+        int column = 3 + editedRow % subjects;
+        for (long cell : roster.engine.setValue(editedRow, column, String.valueOf(editedRow % 101))) {
+            int row = (int) (cell >>> 32);
+            blackhole.consume(roster.engine.displayValue(row, (int) cell));
+            blackhole.consume(roster.engine.rowStats(row));
+        }
+    }
+
+    private double classAverage() {
+        return roster.engine.classAveragePercentage();
+    }
+
+    // What a structural change to the row list does to a sheet with formulas
+    private void dropCachedResults() {
+        roster.engine.recalculate();
+    }
+}
@@ -0,0 +1,487 @@
+package gradetracker.batch;
+
+import gradetracker.calc.RowStats;
+import gradetracker.calc.SheetCalculator;
+import gradetracker.engine.GradeEngine;
+import gradetracker.formula.FormulaCache;
+import gradetracker.io.RosterSnapshot;
+import gradetracker.model.Marks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Grades a set of roster CSV files (the layout the application saves) from the command line.
+// Files are graded in parallel, one task per file on a fixed pool; the rows of large files are
+// split further and evaluated on a fork/join pool of the same size. Each roster gets a graded
+// copy with every formula evaluated and the derived columns added, and summary.csv lists the
+// class figures of all of them.
+//
+//   java -jar grade-tracker-core.jar <directory | glob> [--out DIR] [--threads N]
+public final class BatchGrader {
+
+    // Rows evaluated by one fork/join task; files with more rows are split
+    static final int ROWS_PER_TASK = 8192;
+    static final String GRADED_SUFFIX = ".graded.csv";
+    static final String SUMMARY_FILE = "summary.csv";
+    private static final String GRADES = "ABCDF";
+
+    private final Path outputDirectory;
+    private final int threads;
+
+    public BatchGrader(Path outputDirectory, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        String location = null;
+        Path output = Paths.get("graded");
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--out") && i + 1 < args.length) {
+                    output = Paths.get(args[++i]);
+                } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (location == null && !args[i].startsWith("--")) {
+                    location = args[i];
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                }
+            }
+            if (location == null) {
+                throw new IllegalArgumentException("No roster directory or glob given");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: BatchGrader <directory | glob> [--out DIR] [--threads N]");
+            System.exit(2);
+            return;
+        }
+
+        try {
+            Path base = baseDirectory(location);
+            List<Path> files = findRosters(location);
+            if (files.isEmpty()) {
+                System.err.println("No roster files match " + location);
+                System.exit(1);
+            }
+            long start = System.nanoTime();
+            List<FileSummary> summaries = new BatchGrader(output, threads).gradeAll(base, files);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            int failed = 0;
+            long students = 0;
+            for (FileSummary summary : summaries) {
+                if (summary.getError() != null) {
+                    failed++;
+                    System.err.println(summary.getFile() + ": " + summary.getError());
+                } else {
+                    students += summary.getStudents();
+                }
+            }
+            System.out.printf("Graded %d of %d files (%d students) in %d ms on %d threads; summary in %s%n",
+                    summaries.size() - failed, summaries.size(), students, elapsedMillis, threads,
+                    output.resolve(SUMMARY_FILE));
+            System.out.println("Formula cache: " + FormulaCache.shared());
+            System.exit(failed == 0 ? 0 : 1);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Batch grading failed: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+
+    // Grades every file, writing graded copies under the output directory at the same path
+    // relative to base, then writes the summary. A file that cannot be read or written is
+    // reported in its summary line and does not stop the others.
+    public List<FileSummary> gradeAll(Path base, List<Path> files) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        if (files.isEmpty()) {
+            writeSummary(List.of(), outputDirectory.resolve(SUMMARY_FILE));
+            return List.of();
+        }
+        ExecutorService filePool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        ForkJoinPool rowPool = new ForkJoinPool(threads);
+        try {
+            List<Future<FileSummary>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Path graded = outputDirectory.resolve(gradedName(base.relativize(file)));
+                futures.add(filePool.submit(() -> gradeFile(file, graded, rowPool)));
+            }
+            List<FileSummary> summaries = new ArrayList<>(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    summaries.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    summaries.add(FileSummary.failed(files.get(i),
+                            cause.getMessage() != null ? cause.getMessage() : cause.toString()));
+                }
+            }
+            writeSummary(summaries, outputDirectory.resolve(SUMMARY_FILE));
+            return summaries;
+        } finally {
+            filePool.shutdownNow();
+            rowPool.shutdownNow();
+        }
+    }
+
+    private static FileSummary gradeFile(Path file, Path graded, ForkJoinPool rowPool) {
+        GradeEngine engine;
+        try {
+            engine = GradeEngine.load(file);
+        } catch (IOException | UncheckedIOException e) {
+            return FileSummary.failed(file, e.getMessage());
+        }
+
+        GradeRows task = new GradeRows(engine, 0, engine.rowCount());
+        GradedRows result = engine.rowCount() <= ROWS_PER_TASK ? task.compute() : rowPool.invoke(task);
+
+        try {
+            Files.createDirectories(graded.toAbsolutePath().getParent());
+            try (Writer writer = Files.newBufferedWriter(graded, StandardCharsets.UTF_8)) {
+                RosterSnapshot.writeRecord(gradedHeader(engine), writer);
+                for (String chunk : result.csv) {
+                    writer.write(chunk);
+                }
+            }
+        } catch (IOException e) {
+            return FileSummary.failed(file, "Cannot write " + graded + ": " + e.getMessage());
+        }
+        return new FileSummary(file, graded, engine.rowCount(), result);
+    }
+
+    // A directory stands for the *.csv files directly in it; anything else is a glob such as
+    // rosters/2024/*.csv or terms/**/section-?.csv, matched below its fixed leading directories.
+    // Either way only .csv files count, and graded copies and summaries left by an earlier run
+    // are skipped.
+    public static List<Path> findRosters(String location) throws IOException {
+        Path path = Paths.get(location.isEmpty() ? "." : location);
+        if (!hasGlob(location)) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    return files.filter(file -> Files.isRegularFile(file) && isCsv(file))
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
+            }
+            if (Files.isRegularFile(path)) {
+                return List.of(path);
+            }
+            throw new IOException("No such file or directory: " + location);
+        }
+
+        Path base = baseDirectory(location);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + globPart(location));
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(file -> Files.isRegularFile(file) && isCsv(file)
+                            && matcher.matches(base.relativize(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // Directory the matched files are named relative to in the output directory
+    static Path baseDirectory(String location) {
+        if (!hasGlob(location)) {
+            Path path = Paths.get(location.isEmpty() ? "." : location);
+            if (Files.isDirectory(path)) {
+                return path;
+            }
+            Path parent = path.getParent();
+            return parent != null ? parent : Paths.get("");
+        }
+        int separator = lastSeparatorBefore(location, firstGlobChar(location));
+        return separator < 0 ? Paths.get("") : Paths.get(location.substring(0, separator + 1));
+    }
+
+    private static String globPart(String location) {
+        return location.substring(lastSeparatorBefore(location, firstGlobChar(location)) + 1);
+    }
+
+    private static boolean hasGlob(String location) {
+        return firstGlobChar(location) >= 0;
+    }
+
+    private static int firstGlobChar(String location) {
+        for (int i = 0; i < location.length(); i++) {
+            if ("*?[{".indexOf(location.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastSeparatorBefore(String location, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            char c = location.charAt(i);
+            if (c == '/' || c == File.separatorChar) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isCsv(Path file) {
+        String name = file.getFileName().toString();
+        return name.toLowerCase(Locale.ROOT).endsWith(".csv") && !name.endsWith(GRADED_SUFFIX) && !name.equals(SUMMARY_FILE);
+    }
+
+    private static Path gradedName(Path relative) {
+        String name = relative.getFileName().toString();
+        if (name.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        return relative.resolveSibling(name + GRADED_SUFFIX);
+    }
+
+    private static String[] gradedHeader(GradeEngine engine) {
+        List<String> header = new ArrayList<>();
+        header.add("ROLL NO");
+        header.add("NAME");
+        for (String subject : engine.getSubjects()) {
+            header.add(subject.toUpperCase(Locale.ROOT));
+        }
+        header.add("TOTAL MARKS");
+        header.add("PERCENTAGE");
+        header.add("GRADE");
+        return header.toArray(new String[0]);
+    }
+
+    private static void writeSummary(List<FileSummary> summaries, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            RosterSnapshot.writeRecord(new String[] {
+                    "FILE", "STUDENTS", "CLASS AVERAGE", "HIGHEST PERCENTAGE", "LOWEST PERCENTAGE",
+                    "A", "B", "C", "D", "F", "ERROR CELLS", "STATUS" }, writer);
+            for (FileSummary summary : summaries) {
+                if (summary.getError() != null) {
+                    RosterSnapshot.writeRecord(new String[] {
+                            summary.getFile().toString(), "", "", "", "", "", "", "", "", "", "",
+                            "FAILED: " + summary.getError() }, writer);
+                    continue;
+                }
+                String[] values = new String[12];
+                values[0] = summary.getFile().toString();
+                values[1] = String.valueOf(summary.getStudents());
+                values[2] = percentage(summary.getClassAverage());
+                values[3] = percentage(summary.getHighestPercentage());
+                values[4] = percentage(summary.getLowestPercentage());
+                for (int grade = 0; grade < GRADES.length(); grade++) {
+                    values[5 + grade] = String.valueOf(summary.getGradeCount(GRADES.charAt(grade)));
+                }
+                values[10] = String.valueOf(summary.getErrorCells());
+                values[11] = "OK";
+                RosterSnapshot.writeRecord(values, writer);
+            }
+        }
+    }
+
+    private static String percentage(double value) {
+        return Double.isNaN(value) ? "" : Marks.formatFixed(value, 2) + "%";
+    }
+
+    // Graded CSV text and class figures of a range of rows, each range evaluated with its own
+    // calculator so that tasks never share a cache
+    private static final class GradeRows extends RecursiveTask<GradedRows> {
+        private static final long serialVersionUID = 1L;
+
+        private final GradeEngine engine;
+        private final int from;
+        private final int to;
+
+        GradeRows(GradeEngine engine, int from, int to) {
+            this.engine = engine;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected GradedRows compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                GradeRows upper = new GradeRows(engine, middle, to);
+                upper.fork();
+                GradedRows lower = new GradeRows(engine, from, middle).compute();
+                return lower.merge(upper.join());
+            }
+
+            SheetCalculator calculator = engine.newCalculator();
+            GradedRows result = new GradedRows();
+            StringWriter csv = new StringWriter();
+            int subjects = engine.getSubjects().size();
+            String[] values = new String[subjects + 5];
+            for (int row = from; row < to; row++) {
+                values[0] = engine.getValue(row, 1);
+                values[1] = engine.getValue(row, 2);
+                for (int subject = 0; subject < subjects; subject++) {
+                    values[2 + subject] = calculator.displayValue(row, 3 + subject);
+                    if (calculator.isError(row, 3 + subject)) {
+                        result.errorCells++;
+                    }
+                }
+                RowStats stats = calculator.rowStats(row);
+                values[subjects + 2] = Marks.formatFixed(stats.getTotal(), 2);
+                values[subjects + 3] = Marks.formatFixed(stats.getPercentage(), 2) + "%";
+                values[subjects + 4] = stats.getGrade();
+                result.add(stats);
+                try {
+                    RosterSnapshot.writeRecord(values, csv);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // StringWriter does not throw
+                }
+            }
+            result.csv.add(csv.toString());
+            return result;
+        }
+    }
+
+    // Accumulated figures of graded rows; the CSV text is kept as chunks in row order
+    private static final class GradedRows {
+        final List<String> csv = new ArrayList<>();
+        final int[] gradeCounts = new int[GRADES.length()];
+        double percentageSum;
+        int graded;
+        int errorCells;
+        double highest = Double.NaN;
+        double lowest = Double.NaN;
+
+        void add(RowStats stats) {
+            double percentage = stats.getPercentage();
+            if (Double.isNaN(percentage) || Double.isInfinite(percentage)) {
+                return;
+            }
+            percentageSum += percentage;
+            graded++;
+            highest = Double.isNaN(highest) ? percentage : Math.max(highest, percentage);
+            lowest = Double.isNaN(lowest) ? percentage : Math.min(lowest, percentage);
+            int grade = GRADES.indexOf(stats.getGrade());
+            if (grade >= 0) {
+                gradeCounts[grade]++;
+            }
+        }
+
+        GradedRows merge(GradedRows next) {
+            csv.addAll(next.csv);
+            for (int i = 0; i < gradeCounts.length; i++) {
+                gradeCounts[i] += next.gradeCounts[i];
+            }
+            percentageSum += next.percentageSum;
+            graded += next.graded;
+            errorCells += next.errorCells;
+            highest = Double.isNaN(highest) ? next.highest : Double.isNaN(next.highest) ? highest
+                    : Math.max(highest, next.highest);
+            lowest = Double.isNaN(lowest) ? next.lowest : Double.isNaN(next.lowest) ? lowest
+                    : Math.min(lowest, next.lowest);
+            return this;
+        }
+    }
+
+    // One line of summary.csv
+    public static final class FileSummary {
+        private final Path file;
+        private final Path gradedFile;
+        private final int students;
+        private final double classAverage;
+        private final double highestPercentage;
+        private final double lowestPercentage;
+        private final int[] gradeCounts;
+        private final int errorCells;
+        private final String error;
+
+        private FileSummary(Path file, Path gradedFile, int students, GradedRows rows) {
+            this.file = file;
+            this.gradedFile = gradedFile;
+            this.students = students;
+            this.classAverage = rows.graded > 0 ? rows.percentageSum / rows.graded : Double.NaN;
+            this.highestPercentage = rows.highest;
+            this.lowestPercentage = rows.lowest;
+            this.gradeCounts = rows.gradeCounts.clone();
+            this.errorCells = rows.errorCells;
+            this.error = null;
+        }
+
+        private FileSummary(Path file, String error) {
+            this.file = file;
+            this.gradedFile = null;
+            this.students = 0;
+            this.classAverage = Double.NaN;
+            this.highestPercentage = Double.NaN;
+            this.lowestPercentage = Double.NaN;
+            this.gradeCounts = new int[GRADES.length()];
+            this.errorCells = 0;
+            this.error = error;
+        }
+
+        static FileSummary failed(Path file, String error) {
+            return new FileSummary(file, error);
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        // Null if the file failed
+        public Path getGradedFile() {
+            return gradedFile;
+        }
+
+        public int getStudents() {
+            return students;
+        }
+
+        // Mean percentage of the students that could be graded, or NaN if none could
+        public double getClassAverage() {
+            return classAverage;
+        }
+
+        public double getHighestPercentage() {
+            return highestPercentage;
+        }
+
+        public double getLowestPercentage() {
+            return lowestPercentage;
+        }
+
+        // Students with the given grade letter (A, B, C, D or F)
+        public int getGradeCount(char grade) {
+            int index = GRADES.indexOf(grade);
+            return index >= 0 ? gradeCounts[index] : 0;
+        }
+
+        // Subject cells whose formula could not be evaluated
+        public int getErrorCells() {
+            return errorCells;
+        }
+
+        // Why the file could not be graded, or null
+        public String getError() {
+            return error;
+        }
+    }
+}
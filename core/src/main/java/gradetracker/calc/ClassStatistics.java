@@ -0,0 +1,120 @@
+package gradetracker.calc;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Class-wide figures accumulated one student at a time: percentage mean and spread (Welford),
+// percentiles (QuantileSketch), the grade distribution, per-subject mark averages and the number
+// of cells in error. Students and cells can be taken out again, so an edit, insert or delete only
+// touches the rows it affects, and accumulators built over separate row ranges merge into one
+// for the whole class.
+public final class ClassStatistics {
+
+    // Grade bands of RowStats.gradeFor, best first
+    public static final List<String> GRADES = List.of("A", "B", "C", "D", "F");
+
+    private final RunningStats percentages = new RunningStats();
+    private final QuantileSketch percentiles = new QuantileSketch();
+    private final int[] gradeCounts = new int[GRADES.size()];
+    private final double[] subjectTotals;
+    private final int[] subjectMarkCounts;
+    private int students;
+    private int ungradedStudents;
+    private int errorCells;
+
+    public ClassStatistics(int subjectCount) {
+        subjectTotals = new double[subjectCount];
+        subjectMarkCounts = new int[subjectCount];
+    }
+
+    public void addStudent(RowStats stats) {
+        students++;
+        double percentage = stats.getPercentage();
+        if (!isGradable(percentage)) {
+            ungradedStudents++;
+            return;
+        }
+        percentages.add(percentage);
+        percentiles.add(percentage);
+        gradeCounts[GRADES.indexOf(stats.getGrade())]++;
+    }
+
+    // Takes out a student added before with the same statistics
+    public void removeStudent(RowStats stats) {
+        students--;
+        double percentage = stats.getPercentage();
+        if (!isGradable(percentage)) {
+            ungradedStudents--;
+            return;
+        }
+        percentages.remove(percentage);
+        percentiles.remove(percentage);
+        gradeCounts[GRADES.indexOf(stats.getGrade())]--;
+    }
+
+    // Forgets every student but keeps the subject cells, for when max marks change the
+    // percentages but not the marks
+    public void clearStudents() {
+        percentages.clear();
+        percentiles.clear();
+        Arrays.fill(gradeCounts, 0);
+        students = 0;
+        ungradedStudents = 0;
+    }
+
+    // A subject cell: its mark (SheetCalculator.subjectMark, NaN counts as no mark) and whether
+    // it holds a formula in error
+    public void addCell(int subject, double mark, boolean error) {
+        if (error) {
+            errorCells++;
+        }
+        if (!Double.isNaN(mark) && subject < subjectTotals.length) {
+            subjectTotals[subject] += mark;
+            subjectMarkCounts[subject]++;
+        }
+    }
+
+    public void removeCell(int subject, double mark, boolean error) {
+        if (error) {
+            errorCells--;
+        }
+        if (!Double.isNaN(mark) && subject < subjectTotals.length) {
+            subjectTotals[subject] -= mark;
+            subjectMarkCounts[subject]--;
+        }
+    }
+
+    // Adds the students and marks of another accumulator over different rows
+    public ClassStatistics merge(ClassStatistics other) {
+        percentages.merge(other.percentages);
+        percentiles.merge(other.percentiles);
+        for (int i = 0; i < gradeCounts.length; i++) {
+            gradeCounts[i] += other.gradeCounts[i];
+        }
+        for (int i = 0; i < subjectTotals.length && i < other.subjectTotals.length; i++) {
+            subjectTotals[i] += other.subjectTotals[i];
+            subjectMarkCounts[i] += other.subjectMarkCounts[i];
+        }
+        students += other.students;
+        ungradedStudents += other.ungradedStudents;
+        errorCells += other.errorCells;
+        return this;
+    }
+
+    public ClassSummary summary(List<String> subjects) {
+        double[] subjectAverages = new double[subjectTotals.length];
+        for (int i = 0; i < subjectAverages.length; i++) {
+            subjectAverages[i] = subjectMarkCounts[i] == 0 ? Double.NaN : subjectTotals[i] / subjectMarkCounts[i];
+        }
+        return new ClassSummary(students, ungradedStudents, errorCells, percentages.getMean(),
+                percentages.getStandardDeviation(),
+                new double[] {
+                        percentiles.quantile(0.10), percentiles.quantile(0.25), percentiles.quantile(0.50),
+                        percentiles.quantile(0.75), percentiles.quantile(0.90) },
+                gradeCounts.clone(), subjects, subjectAverages);
+    }
+
+    private static boolean isGradable(double percentage) {
+        return !Double.isNaN(percentage) && !Double.isInfinite(percentage);
+    }
+}
@@ -0,0 +1,91 @@
+package gradetracker.calc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Figures shown on the class summary card, taken from a ClassStatistics at one point in time.
+// Percentage figures cover the students whose percentage could be computed; they are NaN when
+// there are none. Percentiles are exact to within 0.005 percentage points.
+public final class ClassSummary {
+
+    private final int students;
+    private final int ungradedStudents;
+    private final int errorCells;
+    private final double mean;
+    private final double standardDeviation;
+    private final double[] percentiles; // p10, p25, median, p75, p90
+    private final int[] gradeCounts;
+    private final List<String> subjects;
+    private final double[] subjectAverages;
+
+    ClassSummary(int students, int ungradedStudents, int errorCells, double mean, double standardDeviation,
+            double[] percentiles, int[] gradeCounts, List<String> subjects, double[] subjectAverages) {
+        this.students = students;
+        this.ungradedStudents = ungradedStudents;
+        this.errorCells = errorCells;
+        this.mean = mean;
+        this.standardDeviation = standardDeviation;
+        this.percentiles = percentiles;
+        this.gradeCounts = gradeCounts;
+        this.subjects = Collections.unmodifiableList(new ArrayList<>(subjects));
+        this.subjectAverages = subjectAverages;
+    }
+
+    public int getStudents() {
+        return students;
+    }
+
+    // Students whose percentage could not be computed (left out of every percentage figure)
+    public int getUngradedStudents() {
+        return ungradedStudents;
+    }
+
+    // Subject cells whose formula cannot be evaluated
+    public int getErrorCells() {
+        return errorCells;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMedian() {
+        return percentiles[2];
+    }
+
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public double getP10() {
+        return percentiles[0];
+    }
+
+    public double getP25() {
+        return percentiles[1];
+    }
+
+    public double getP75() {
+        return percentiles[3];
+    }
+
+    public double getP90() {
+        return percentiles[4];
+    }
+
+    // Students with the given grade (one of ClassStatistics.GRADES)
+    public int getGradeCount(String grade) {
+        int index = ClassStatistics.GRADES.indexOf(grade);
+        return index >= 0 ? gradeCounts[index] : 0;
+    }
+
+    public List<String> getSubjects() {
+        return subjects;
+    }
+
+    // Mean mark of a subject over the students marked for it, or NaN if nobody is
+    public double getSubjectAverage(int subject) {
+        return subject < subjectAverages.length ? subjectAverages[subject] : Double.NaN;
+    }
+}
@@ -0,0 +1,118 @@
+package gradetracker.calc;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Quantiles of percentages without keeping or sorting the values. Values from 0 to 100 are
+// counted in buckets of 0.01 (the precision percentages are shown with), so a quantile is off by
+// at most half a bucket; the rare values outside that range are kept exactly. Values can be
+// removed again and sketches merged, which a sampling sketch such as t-digest cannot do.
+public final class QuantileSketch {
+
+    private static final int BUCKETS_PER_UNIT = 100;
+    private static final int MAX_VALUE = 100;
+
+    private final int[] buckets = new int[MAX_VALUE * BUCKETS_PER_UNIT + 1];
+    private final TreeMap<Double, Integer> outliers = new TreeMap<>();
+    private long count;
+
+    public void add(double value) {
+        int bucket = bucket(value);
+        if (bucket >= 0) {
+            buckets[bucket]++;
+        } else {
+            outliers.merge(value, 1, Integer::sum);
+        }
+        count++;
+    }
+
+    // Takes out a value that was added before
+    public void remove(double value) {
+        int bucket = bucket(value);
+        if (bucket >= 0) {
+            if (buckets[bucket] == 0) {
+                return;
+            }
+            buckets[bucket]--;
+        } else {
+            Integer remaining = outliers.get(value);
+            if (remaining == null) {
+                return;
+            }
+            if (remaining == 1) {
+                outliers.remove(value);
+            } else {
+                outliers.put(value, remaining - 1);
+            }
+        }
+        count--;
+    }
+
+    public void clear() {
+        Arrays.fill(buckets, 0);
+        outliers.clear();
+        count = 0;
+    }
+
+    public void merge(QuantileSketch other) {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] += other.buckets[i];
+        }
+        for (Map.Entry<Double, Integer> entry : other.outliers.entrySet()) {
+            outliers.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // The q-quantile (0 <= q <= 1), interpolating between the two nearest ranks as spreadsheets
+    // do, so the median of an even count is the mean of the middle two. NaN when empty.
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double position = Math.min(1, Math.max(0, q)) * (count - 1);
+        long lower = (long) Math.floor(position);
+        double lowerValue = valueAt(lower);
+        if (lower == position) {
+            return lowerValue;
+        }
+        double upperValue = valueAt(lower + 1);
+        return lowerValue + (position - lower) * (upperValue - lowerValue);
+    }
+
+    // Value with the given 0-based rank in sorted order
+    private double valueAt(long rank) {
+        long seen = 0;
+        for (Map.Entry<Double, Integer> entry : outliers.headMap(0.0).entrySet()) {
+            seen += entry.getValue();
+            if (rank < seen) {
+                return entry.getKey();
+            }
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (rank < seen) {
+                return (double) i / BUCKETS_PER_UNIT;
+            }
+        }
+        for (Map.Entry<Double, Integer> entry : outliers.tailMap(0.0, true).entrySet()) {
+            seen += entry.getValue();
+            if (rank < seen) {
+                return entry.getKey();
+            }
+        }
+        return outliers.isEmpty() ? (double) MAX_VALUE : outliers.lastKey();
+    }
+
+    private static int bucket(double value) {
+        if (!(value >= 0 && value <= MAX_VALUE)) {
+            return -1;
+        }
+        return (int) Math.round(value * BUCKETS_PER_UNIT);
+    }
+}
@@ -0,0 +1,93 @@
+package gradetracker.calc;
+
+import java.util.List;
+
+// Per-student figures shown in the derived columns (TOTAL MARKS, PERCENTAGE, GRADE, AVG, HIGHEST
+// and LOWEST MARK), computed together in a single pass over the row's subject cells.
+public final class RowStats {
+
+    public static final RowStats EMPTY = new RowStats(0, 0, 0, 0, 0);
+
+    private final double total;
+    private final int markCount;
+    private final double highest;
+    private final double lowest;
+    private final double obtainableMarks;
+    private final double percentage;
+    private final String grade;
+
+    RowStats(double total, int markCount, double highest, double lowest, double obtainableMarks) {
+        this.total = total;
+        this.markCount = markCount;
+        this.highest = highest;
+        this.lowest = lowest;
+        this.obtainableMarks = obtainableMarks;
+        this.percentage = (obtainableMarks > 0) ? (total / obtainableMarks) * 100 : 0;
+        this.grade = gradeFor(percentage);
+    }
+
+    public double getTotal() {
+        return total;
+    }
+
+    public int getMarkCount() {
+        return markCount;
+    }
+
+    public double getAverage() {
+        return markCount == 0 ? 0.0 : total / markCount;
+    }
+
+    public double getHighest() {
+        return highest;
+    }
+
+    public double getLowest() {
+        return lowest;
+    }
+
+    // Sum of the max marks of every subject the student has been marked for
+    public double getObtainableMarks() {
+        return obtainableMarks;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    public String getGrade() {
+        return grade;
+    }
+
+    public static String gradeFor(double percentage) {
+        if (Double.isNaN(percentage))
+            return "N/A";
+        if (percentage >= 90)
+            return "A";
+        if (percentage >= 80)
+            return "B";
+        if (percentage >= 70)
+            return "C";
+        if (percentage >= 60)
+            return "D";
+        return "F";
+    }
+
+    // Converts the max marks entered per subject to numbers. Missing or blank entries default to
+    // 100; entries that are not numbers become NaN and are left out of the obtainable total.
+    public static double[] parseMaxMarks(List<String> maxMarks, int subjectCount) {
+        double[] values = new double[subjectCount];
+        for (int i = 0; i < subjectCount; i++) {
+            if (i >= maxMarks.size() || maxMarks.get(i).trim().isEmpty()) {
+                values[i] = 100;
+                continue;
+            }
+            try {
+                values[i] = Double.parseDouble(maxMarks.get(i));
+            } catch (NumberFormatException e) {
+                values[i] = Double.NaN;
+            }
+        }
+        return values;
+    }
+}
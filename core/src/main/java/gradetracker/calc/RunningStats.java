@@ -0,0 +1,67 @@
+package gradetracker.calc;
+
+// Count, mean and variance of a stream of values in one pass (Welford's algorithm). Values can
+// also be taken out again, so the figures follow edits without a rescan, and two instances over
+// disjoint values merge into the figures of their union (Chan et al.).
+public final class RunningStats {
+
+    private long count;
+    private double mean;
+    private double m2; // Sum of squared differences from the mean
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    // Takes out a value that was added before
+    public void remove(double value) {
+        if (count <= 1) {
+            clear();
+            return;
+        }
+        double previousMean = mean;
+        mean = (count * mean - value) / (count - 1);
+        count--;
+        m2 = Math.max(0, m2 - (value - previousMean) * (value - mean));
+    }
+
+    public void clear() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+    }
+
+    public void merge(RunningStats other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // NaN when empty
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    // Population standard deviation; NaN when empty
+    public double getStandardDeviation() {
+        return count == 0 ? Double.NaN : Math.sqrt(m2 / count);
+    }
+}
@@ -0,0 +1,728 @@
+package gradetracker.calc;
+
+import gradetracker.formula.EvaluationContext;
+import gradetracker.formula.Formula;
+import gradetracker.formula.FormulaCache;
+import gradetracker.formula.FormulaException;
+import gradetracker.model.Marks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Evaluates formula cells on demand and caches their results together with a dependency graph
+// built from the references in each formula. Editing a cell only drops the cached results of
+// the cells that (transitively) read it; everything else keeps its value until the next
+// structural change (rows inserted, removed or reordered, or the subject columns redefined).
+// Per-row statistics are cached the same way and dropped whenever any cell of the row changes.
+//
+// Not thread-safe: all calls are expected to come from the JavaFX application thread.
+public class SheetCalculator {
+
+    // Rows of a column copied out of the model at a time when summing a range
+    private static final int RANGE_BLOCK_ROWS = 1024;
+    private static final Result ERROR = new Result(0.0, "Error", true);
+    // Result of the cells of a reference cycle
+    private static final Result CYCLE = new Result(0.0, "#CYCLE", true);
+
+    private final SheetModel model;
+    // Compiled formulas, shared across cells (and calculators) holding the same formula
+    private final FormulaCache formulaCache;
+    // Formula cell -> its formula as last looked up, so re-evaluating a cell whose text has not
+    // changed skips the FormulaCache lookup and the lexing its key needs
+    private final Map<Long, Formula> formulas = new HashMap<>();
+    // Cached results of formula cells, keyed by cellKey(row, column)
+    private final Map<Long, Result> results = new HashMap<>();
+    // Cell -> formula cells that reference it directly
+    private final Map<Long, Set<Long>> dependents = new HashMap<>();
+    // Column -> formula ranges covering (part of) that column
+    private final Map<Integer, ColumnRanges> rangeDependents = new HashMap<>();
+    // Formula cell -> the edges registered for it, so they can be removed when its text changes
+    private final Map<Long, List<Object>> precedents = new HashMap<>();
+    // Cached per-row statistics, keyed by row
+    private final Map<Integer, RowStats> rowStats = new HashMap<>();
+    private double[] maxMarks = new double[0];
+    // Formula cells being evaluated by evaluateInOrder, to recognise cycles
+    private final Set<Long> evaluating = new HashSet<>();
+    // Buffer for sumBlock; null while in use
+    private double[] rangeBlock = new double[RANGE_BLOCK_ROWS];
+
+    private final EvaluationContext context = new EvaluationContext() {
+        @Override
+        public int columnIndex(String letters) {
+            return model.columnIndex(letters);
+        }
+
+        @Override
+        public double cellValue(int row, int column) {
+            // Formula coordinates are 1-based rows
+            int dataRow = row - 1;
+            if (dataRow < 0 || dataRow >= model.rowCount() || column < 1) {
+                return 0.0;
+            }
+            return numericValue(dataRow, column);
+        }
+
+        @Override
+        public double sumColumn(int column, int fromRow, int toRow) {
+            // Formula coordinates are 1-based rows; rows outside the sheet read as 0
+            int first = Math.max(fromRow - 1, 0);
+            int last = Math.min(toRow - 1, model.rowCount() - 1);
+            if (column < 1) {
+                return 0.0;
+            }
+            double sum = 0;
+            for (int from = first; from <= last; from += RANGE_BLOCK_ROWS) {
+                sum += sumBlock(column, from, Math.min(last + 1, from + RANGE_BLOCK_ROWS));
+            }
+            return sum;
+        }
+
+        @Override
+        public int lastRow() {
+            return model.rowCount();
+        }
+
+        @Override
+        public int numbers(int column, int fromRow, int toRow, double[] out, int offset) {
+            int first = Math.max(fromRow - 1, 0);
+            int last = Math.min(toRow - 1, model.rowCount() - 1);
+            if (column < 1) {
+                return 0;
+            }
+            int written = 0;
+            for (int from = first; from <= last; from += RANGE_BLOCK_ROWS) {
+                int to = Math.min(last + 1, from + RANGE_BLOCK_ROWS);
+                written += numbersBlock(column, from, to, out, offset + written);
+            }
+            return written;
+        }
+    };
+
+    public SheetCalculator(SheetModel model) {
+        this(model, FormulaCache.shared());
+    }
+
+    public SheetCalculator(SheetModel model, FormulaCache formulaCache) {
+        this.model = model;
+        this.formulaCache = formulaCache;
+    }
+
+    public static long cellKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    public static int rowOf(long cellKey) {
+        return (int) (cellKey >>> 32);
+    }
+
+    public static int columnOf(long cellKey) {
+        return (int) cellKey;
+    }
+
+    // Text shown for a cell: formulas are evaluated (or served from cache) and formatted to two
+    // decimals, "Error" if they fail; plain values are returned unchanged.
+    public String displayValue(int row, int column) {
+        String raw = model.rawValue(row, column);
+        if (raw == null || raw.trim().isEmpty()) {
+            return "";
+        }
+        if (!Formula.isFormula(raw)) {
+            return raw;
+        }
+        return result(row, column, raw).display;
+    }
+
+    // Numeric value of a cell as seen by other formulas; blanks, text and errors read as 0.
+    public double numericValue(int row, int column) {
+        double number = model.plainNumber(row, column);
+        if (!Double.isNaN(number)) {
+            return number;
+        }
+        String raw = model.rawValue(row, column);
+        if (raw == null || raw.trim().isEmpty()) {
+            return 0.0;
+        }
+        if (Formula.isFormula(raw)) {
+            Result result = result(row, column, raw);
+            return result.error ? 0.0 : result.value;
+        }
+        if (!mayBeNumber(raw)) {
+            return 0.0;
+        }
+        try {
+            return Double.parseDouble(raw);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    // Sum of rows [from, to) of a column. The plain numbers are copied out of the model in one go
+    // and added four at a time into separate sums, which keeps the loop free of dependencies the
+    // JIT would have to serialise; the remaining cells (formulas, text and blanks) are resolved
+    // one by one, formulas from their cached results.
+    private double sumBlock(int column, int from, int to) {
+        double[] block = rangeBlock;
+        rangeBlock = null; // Resolving a formula below may sum another range
+        if (block == null) {
+            block = new double[RANGE_BLOCK_ROWS];
+        }
+        try {
+            int count = to - from;
+            model.plainNumbers(column, from, to, block);
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+            int others = 0;
+            int i = 0;
+            for (; i + 3 < count; i += 4) {
+                double a = block[i], b = block[i + 1], c = block[i + 2], d = block[i + 3];
+                s0 += a == a ? a : 0; // x == x is false only for NaN
+                s1 += b == b ? b : 0;
+                s2 += c == c ? c : 0;
+                s3 += d == d ? d : 0;
+                others += (a == a ? 0 : 1) + (b == b ? 0 : 1) + (c == c ? 0 : 1) + (d == d ? 0 : 1);
+            }
+            for (; i < count; i++) {
+                double a = block[i];
+                s0 += a == a ? a : 0;
+                others += a == a ? 0 : 1;
+            }
+            double sum = (s0 + s1) + (s2 + s3);
+            for (i = 0; others > 0 && i < count; i++) {
+                if (Double.isNaN(block[i])) {
+                    sum += numericValue(from + i, column);
+                    others--;
+                }
+            }
+            return sum;
+        } finally {
+            rangeBlock = block;
+        }
+    }
+
+    // Numbers of rows [from, to) of a column into out from offset on, leaving out blanks, text and
+    // formulas in error; returns how many were written
+    private int numbersBlock(int column, int from, int to, double[] out, int offset) {
+        double[] block = rangeBlock;
+        rangeBlock = null; // Resolving a formula below may read another range
+        if (block == null) {
+            block = new double[RANGE_BLOCK_ROWS];
+        }
+        try {
+            model.plainNumbers(column, from, to, block);
+            int written = 0;
+            for (int i = 0; i < to - from; i++) {
+                double value = block[i];
+                if (Double.isNaN(value)) {
+                    value = cellNumber(from + i, column);
+                }
+                if (!Double.isNaN(value)) {
+                    out[offset + written++] = value;
+                }
+            }
+            return written;
+        } finally {
+            rangeBlock = block;
+        }
+    }
+
+    // Number held by a cell that is not a plain number: a formula's result or numeric text; NaN
+    // for blanks, other text and formulas in error
+    private double cellNumber(int row, int column) {
+        String raw = model.rawValue(row, column);
+        if (raw == null || raw.trim().isEmpty()) {
+            return Double.NaN;
+        }
+        if (Formula.isFormula(raw)) {
+            Result result = result(row, column, raw);
+            return result.error ? Double.NaN : result.value;
+        }
+        return parseMark(raw);
+    }
+
+    // Statistics for a row, computed in one pass over its subject cells and cached until the row
+    // (or a formula it contains) changes or the max marks are redefined.
+    public RowStats rowStats(int row) {
+        RowStats cached = rowStats.get(row);
+        if (cached != null) {
+            return cached;
+        }
+
+        double total = 0;
+        int markCount = 0;
+        double highest = 0;
+        double lowest = 0;
+        double obtainableMarks = 0;
+        for (int i = 0; i < maxMarks.length; i++) {
+            int column = SheetModel.FIRST_SUBJECT_COLUMN + i;
+            double mark = model.plainNumber(row, column); // Most marks are plain numbers
+            if (Double.isNaN(mark)) {
+                String scoreStr = displayValue(row, column);
+                if (scoreStr.isEmpty() || isErrorText(scoreStr)) {
+                    continue;
+                }
+                mark = parseMark(scoreStr); // Text counts towards max marks but not the total
+            }
+            // Max marks are added only for subjects the student has a mark for, to avoid
+            // penalizing students for subjects they haven't been marked for yet.
+            if (!Double.isNaN(maxMarks[i])) {
+                obtainableMarks += maxMarks[i];
+            }
+            if (Double.isNaN(mark)) {
+                continue;
+            }
+            if (markCount == 0 || Double.compare(mark, highest) > 0) {
+                highest = mark;
+            }
+            if (markCount == 0 || Double.compare(mark, lowest) < 0) {
+                lowest = mark;
+            }
+            total += mark;
+            markCount++;
+        }
+        RowStats stats = new RowStats(total, markCount, highest, lowest, obtainableMarks);
+        rowStats.put(row, stats);
+        return stats;
+    }
+
+    // A subject cell as rowStats counts it: the plain number, formula result or numeric text;
+    // NaN for blanks, other text and formula errors.
+    public double subjectMark(int row, int column) {
+        double mark = model.plainNumber(row, column);
+        if (!Double.isNaN(mark)) {
+            return mark;
+        }
+        String scoreStr = displayValue(row, column);
+        if (scoreStr.isEmpty() || isErrorText(scoreStr)) {
+            return Double.NaN;
+        }
+        return parseMark(scoreStr);
+    }
+
+    // Whether the cell holds a formula that cannot be evaluated
+    public boolean isError(int row, int column) {
+        if (!Double.isNaN(model.plainNumber(row, column))) {
+            return false;
+        }
+        String raw = model.rawValue(row, column);
+        return raw != null && Formula.isFormula(raw) && result(row, column, raw).error;
+    }
+
+    private static boolean isErrorText(String text) {
+        return text.contains("Error") || text.equals(CYCLE.display);
+    }
+
+    // False for text Double.parseDouble is certain to reject, so that text cells such as "AB"
+    // do not cost an exception every time a range over them is summed
+    private static boolean mayBeNumber(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c > ' ') {
+                return (c >= '0' && c <= '9') || c == '.' || c == '+' || c == '-' || c == 'I' || c == 'N';
+            }
+        }
+        return false;
+    }
+
+    private static double parseMark(String text) {
+        if (!mayBeNumber(text)) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // Sets the max marks per subject (see RowStats.parseMaxMarks); the array length is the
+    // number of subject columns. Drops all cached row statistics.
+    public void setMaxMarks(double[] maxMarks) {
+        this.maxMarks = maxMarks.clone();
+        rowStats.clear();
+    }
+
+    // Call after a cell's raw value has been edited. Drops the cached results of that cell and of
+    // every formula that depends on it, directly or through other formulas, and returns the keys
+    // of all affected cells (including the edited one). Those are recomputed lazily on next read.
+    public Set<Long> cellChanged(int row, int column) {
+        long key = cellKey(row, column);
+        unregisterPrecedents(key); // The edited cell's own formula (and references) may have changed
+        formulas.remove(key);
+
+        Set<Long> affected = affectedCells(row, column);
+        for (long cell : affected) {
+            results.remove(cell);
+            rowStats.remove(rowOf(cell));
+        }
+        return affected;
+    }
+
+    // The cells cellChanged would report for an edit of this cell, without dropping anything;
+    // lets callers read the affected values as they were before the edit. Formulas are reached
+    // only once evaluated or registered (registerFormulas).
+    public Set<Long> affectedCells(int row, int column) {
+        long key = cellKey(row, column);
+        Set<Long> affected = new HashSet<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        affected.add(key);
+        queue.add(key);
+        while (!queue.isEmpty()) {
+            long current = queue.poll();
+            Set<Long> direct = dependents.get(current);
+            if (direct != null) {
+                for (long dependent : direct) {
+                    if (affected.add(dependent)) {
+                        queue.add(dependent);
+                    }
+                }
+            }
+            ColumnRanges ranges = rangeDependents.get(columnOf(current));
+            if (ranges != null) {
+                ranges.reach(rowOf(current), affected, queue);
+            }
+        }
+        return affected;
+    }
+
+    // Records the references of every formula in the sheet without evaluating it, for callers
+    // that need cellChanged and affectedCells to reach formulas this calculator has not read yet
+    public void registerFormulas() {
+        int lastColumn = SheetModel.FIRST_SUBJECT_COLUMN + maxMarks.length - 1;
+        for (int row = 0; row < model.rowCount(); row++) {
+            for (int column = 1; column <= lastColumn; column++) {
+                if (!Double.isNaN(model.plainNumber(row, column))) {
+                    continue;
+                }
+                String raw = model.rawValue(row, column);
+                if (raw != null && Formula.isFormula(raw)) {
+                    long cell = cellKey(row, column);
+                    registerPrecedents(cell, formula(cell, raw));
+                }
+            }
+        }
+    }
+
+    // Call after rows are inserted, removed or reordered, or the columns are redefined: formula
+    // references are positional, so every cached result and dependency edge may now be stale.
+    public void invalidateAll() {
+        results.clear();
+        formulas.clear();
+        dependents.clear();
+        rangeDependents.clear();
+        precedents.clear();
+        rowStats.clear();
+    }
+
+    private Result result(int row, int column, String raw) {
+        long key = cellKey(row, column);
+        Result cached = results.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (evaluating.contains(key)) {
+            return CYCLE; // Only reachable if a reference was missed below; never recurse into it
+        }
+        evaluateInOrder(key, raw);
+        return results.get(key);
+    }
+
+    // Evaluates a formula cell and every formula it reads, directly or indirectly, that has no
+    // cached result yet. Cells are visited depth first with an explicit stack and evaluated
+    // precedents first (a topological order), so every formula is evaluated once and only after
+    // all the formulas it reads; long chains cannot overflow the call stack. Cells that take part
+    // in a reference cycle get the #CYCLE error instead of a value.
+    private void evaluateInOrder(long start, String startRaw) {
+        ArrayDeque<PendingFormula> stack = new ArrayDeque<>();
+        stack.push(new PendingFormula(start, startRaw));
+        evaluating.add(start);
+        try {
+            while (!stack.isEmpty()) {
+                PendingFormula top = stack.peek();
+                PendingFormula next = null;
+                while (next == null && top.nextPrecedent < top.precedents.size()) {
+                    long precedent = top.precedents.get(top.nextPrecedent++);
+                    if (results.containsKey(precedent)) {
+                        continue;
+                    }
+                    if (evaluating.contains(precedent)) {
+                        markCycle(stack, precedent);
+                        top = null;
+                        break;
+                    }
+                    String raw = model.rawValue(rowOf(precedent), columnOf(precedent));
+                    next = new PendingFormula(precedent, raw);
+                }
+                if (top == null) {
+                    continue; // The cycle's cells were resolved and popped
+                }
+                if (next != null) {
+                    stack.push(next);
+                    evaluating.add(next.cell);
+                    continue;
+                }
+                stack.pop();
+                evaluating.remove(top.cell);
+                results.put(top.cell, evaluate(top.cell, top.raw));
+            }
+        } finally {
+            for (PendingFormula pending : stack) {
+                evaluating.remove(pending.cell);
+            }
+        }
+    }
+
+    // The formula cells on the stack from the given one to the top read each other in a circle
+    private void markCycle(ArrayDeque<PendingFormula> stack, long firstInCycle) {
+        while (!stack.isEmpty()) {
+            PendingFormula member = stack.pop();
+            evaluating.remove(member.cell);
+            registerPrecedents(member.cell, formula(member.cell, member.raw));
+            results.put(member.cell, CYCLE);
+            if (member.cell == firstInCycle) {
+                return;
+            }
+        }
+    }
+
+    // Formula cells with no cached result that the formula reads
+    private List<Long> uncachedFormulaPrecedents(Formula formula) {
+        List<Long> cells = new ArrayList<>();
+        formula.forEachReference((fromColumn, fromRow, toColumn, toRow) -> {
+            int startCol = model.columnIndex(fromColumn);
+            int endCol = model.columnIndex(toColumn);
+            if (startCol < 0 || endCol < 0) {
+                return;
+            }
+            int firstRow = Math.max(0, Math.min(fromRow, toRow) - 1);
+            int lastRow = Math.min(model.rowCount() - 1, Math.max(fromRow, toRow) - 1);
+            double[] block = new double[Math.min(RANGE_BLOCK_ROWS, Math.max(0, lastRow - firstRow + 1))];
+            for (int col = Math.min(startCol, endCol); col <= Math.max(startCol, endCol); col++) {
+                for (int from = firstRow; from <= lastRow; from += RANGE_BLOCK_ROWS) {
+                    int to = Math.min(lastRow + 1, from + RANGE_BLOCK_ROWS);
+                    model.plainNumbers(col, from, to, block);
+                    for (int row = from; row < to; row++) {
+                        if (!Double.isNaN(block[row - from])) {
+                            continue; // Plain numbers, the bulk of a range, are skipped without a lookup
+                        }
+                        long cell = cellKey(row, col);
+                        if (results.containsKey(cell)) {
+                            continue;
+                        }
+                        String raw = model.rawValue(row, col);
+                        if (raw != null && Formula.isFormula(raw)) {
+                            cells.add(cell);
+                        }
+                    }
+                }
+            }
+        });
+        return cells;
+    }
+
+    private Formula formula(long cell, String raw) {
+        Formula formula = formulas.get(cell);
+        if (formula == null || !formula.getSource().equals(raw)) {
+            formula = formulaCache.get(raw, rowOf(cell) + 1); // Formula rows are 1-based
+            formulas.put(cell, formula);
+        }
+        return formula;
+    }
+
+    // Evaluates a formula whose formula precedents all have results already
+    private Result evaluate(long key, String raw) {
+        Formula formula = formula(key, raw);
+        registerPrecedents(key, formula);
+        Result result;
+        try {
+            double value = formula.evaluate(context);
+            result = new Result(value, Marks.formatFixed(value, 2), false);
+        } catch (FormulaException e) {
+            // Shown in the cell only: a broken formula fails again on every recalculation, and
+            // logging each failure would flood the console
+            result = ERROR;
+        }
+        return result;
+    }
+
+    private void registerPrecedents(long formulaCell, Formula formula) {
+        if (precedents.containsKey(formulaCell)) {
+            return; // Edges for this formula are still in place from an earlier evaluation
+        }
+        List<Object> edges = new ArrayList<>();
+        formula.forEachReference((fromColumn, fromRow, toColumn, toRow) -> {
+            int startCol = model.columnIndex(fromColumn);
+            int endCol = model.columnIndex(toColumn);
+            if (startCol < 0 || endCol < 0) {
+                return; // Unknown columns read as 0 and cannot change
+            }
+            if (fromRow == toRow && startCol == endCol) {
+                long precedent = cellKey(fromRow - 1, startCol);
+                dependents.computeIfAbsent(precedent, k -> new HashSet<>()).add(formulaCell);
+                edges.add(precedent);
+            } else if (Math.max(fromRow, toRow) >= 1) {
+                // Rows above the sheet can never change, so the range starts at row 0 at the earliest
+                RangeDependency range = new RangeDependency(formulaCell, Math.max(0, Math.min(fromRow, toRow) - 1),
+                        Math.max(fromRow, toRow) - 1, Math.min(startCol, endCol), Math.max(startCol, endCol));
+                for (int col = range.colStart; col <= range.colEnd; col++) {
+                    rangeDependents.computeIfAbsent(col, k -> new ColumnRanges()).add(range);
+                }
+                edges.add(range);
+            }
+        });
+        precedents.put(formulaCell, edges);
+    }
+
+    private void unregisterPrecedents(long formulaCell) {
+        List<Object> edges = precedents.remove(formulaCell);
+        if (edges == null) {
+            return;
+        }
+        for (Object edge : edges) {
+            if (edge instanceof RangeDependency) {
+                RangeDependency range = (RangeDependency) edge;
+                for (int col = range.colStart; col <= range.colEnd; col++) {
+                    ColumnRanges ranges = rangeDependents.get(col);
+                    if (ranges != null && ranges.remove(range)) {
+                        rangeDependents.remove(col);
+                    }
+                }
+            } else {
+                Set<Long> direct = dependents.get((Long) edge);
+                if (direct != null) {
+                    direct.remove(formulaCell);
+                    if (direct.isEmpty()) {
+                        dependents.remove((Long) edge);
+                    }
+                }
+            }
+        }
+    }
+
+    // A formula cell waiting for the formulas it reads to be evaluated first
+    private final class PendingFormula {
+        final long cell;
+        final String raw;
+        final List<Long> precedents;
+        int nextPrecedent;
+
+        PendingFormula(long cell, String raw) {
+            this.cell = cell;
+            this.raw = raw;
+            this.precedents = uncachedFormulaPrecedents(formula(cell, raw));
+        }
+    }
+
+    private static final class Result {
+        final double value;
+        final String display;
+        final boolean error;
+
+        Result(double value, String display, boolean error) {
+            this.value = value;
+            this.display = display;
+            this.error = error;
+        }
+    }
+
+    // A formula that reads a rectangular block of cells (0-based rows, inclusive bounds)
+    private static final class RangeDependency {
+        final long formulaCell;
+        final int rowStart;
+        final int rowEnd;
+        final int colStart;
+        final int colEnd;
+
+        RangeDependency(long formulaCell, int rowStart, int rowEnd, int colStart, int colEnd) {
+            this.formulaCell = formulaCell;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+        }
+    }
+
+    // The formula ranges over one column, indexed so that the ranges covering a row are found
+    // without testing every range on the column. Each range is filed under the smallest aligned
+    // block of 2^level rows that holds it, so a row only has to look in its own block on each
+    // level; formulas reading the same rows share one entry there.
+    private static final class ColumnRanges {
+        private static final int LEVELS = 32;
+
+        // (level << 32 | block) -> (rowStart << 32 | rowEnd) -> formula cells reading those rows
+        private final Map<Long, Map<Long, Set<Long>>> blocks = new HashMap<>();
+        // Formula cells filed on each level, so empty levels are skipped
+        private final int[] levelSizes = new int[LEVELS];
+        private int size;
+
+        void add(RangeDependency range) {
+            int level = level(range);
+            Set<Long> cells = blocks.computeIfAbsent(blockKey(level, range.rowStart), k -> new HashMap<>())
+                    .computeIfAbsent(rowsKey(range), k -> new HashSet<>());
+            if (cells.add(range.formulaCell)) {
+                levelSizes[level]++;
+                size++;
+            }
+        }
+
+        // Returns true once the column has no ranges left
+        boolean remove(RangeDependency range) {
+            int level = level(range);
+            long blockKey = blockKey(level, range.rowStart);
+            Map<Long, Set<Long>> block = blocks.get(blockKey);
+            Set<Long> cells = block != null ? block.get(rowsKey(range)) : null;
+            if (cells != null && cells.remove(range.formulaCell)) {
+                levelSizes[level]--;
+                size--;
+                if (cells.isEmpty()) {
+                    block.remove(rowsKey(range));
+                    if (block.isEmpty()) {
+                        blocks.remove(blockKey);
+                    }
+                }
+            }
+            return size == 0;
+        }
+
+        // Adds the formula cells whose ranges cover the row to affected, queueing the new ones
+        void reach(int row, Set<Long> affected, ArrayDeque<Long> queue) {
+            for (int level = 0; level < LEVELS; level++) {
+                if (levelSizes[level] == 0) {
+                    continue;
+                }
+                Map<Long, Set<Long>> block = blocks.get(blockKey(level, row));
+                if (block == null) {
+                    continue;
+                }
+                for (Map.Entry<Long, Set<Long>> rows : block.entrySet()) {
+                    long key = rows.getKey();
+                    if (row < (int) (key >>> 32) || row > (int) key) {
+                        continue;
+                    }
+                    for (long cell : rows.getValue()) {
+                        if (affected.add(cell)) {
+                            queue.add(cell);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Lowest level on which both ends of the range fall in one block; below LEVELS, as rows
+        // are never negative
+        private static int level(RangeDependency range) {
+            return Integer.SIZE - Integer.numberOfLeadingZeros(range.rowStart ^ range.rowEnd);
+        }
+
+        private static long blockKey(int level, int row) {
+            return ((long) level << 32) | (row >>> level);
+        }
+
+        private static long rowsKey(RangeDependency range) {
+            return ((long) range.rowStart << 32) | range.rowEnd;
+        }
+    }
+}
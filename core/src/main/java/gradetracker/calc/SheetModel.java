@@ -0,0 +1,28 @@
+package gradetracker.calc;
+
+// Read-only view of the grade sheet used by SheetCalculator. Rows are 0-based positions in the
+// roster; columns use the data indices of the table (1 = ROLL NO, 2 = NAME, 3+ = subjects).
+public interface SheetModel {
+
+    int FIRST_SUBJECT_COLUMN = 3;
+
+    int rowCount();
+
+    // Raw text of a cell, or "" when the row or column does not exist.
+    String rawValue(int row, int column);
+
+    // Value of a cell holding a plain number, read without parsing its text; NaN for anything
+    // else (blanks, text, formulas, cells that do not exist).
+    double plainNumber(int row, int column);
+
+    // plainNumber of rows [fromRow, toRow) of one column, into out[0..toRow - fromRow). Models
+    // backed by column arrays override this to copy the marks without a call per cell.
+    default void plainNumbers(int column, int fromRow, int toRow, double[] out) {
+        for (int row = fromRow; row < toRow; row++) {
+            out[row - fromRow] = plainNumber(row, column);
+        }
+    }
+
+    // Maps column letters used in formulas to a data column index, or -1 if unknown.
+    int columnIndex(String letters);
+}
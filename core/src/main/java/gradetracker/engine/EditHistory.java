@@ -0,0 +1,488 @@
+package gradetracker.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+// Undo and redo of roster changes. Each step keeps what its changes did rather than a copy of
+// the roster: the old and new text of the cells written, the values of removed rows (inserted
+// rows are only counted, their values are in the roster), how sorted rows moved, and the old and
+// new subjects. Values are packed into one string per change, so a step costs about a byte per
+// character plus a few bytes per cell. The oldest steps are forgotten once the history holds
+// more than its budget; the latest step is always kept, however large.
+//
+// Changes recorded between beginGroup and endGroup, such as a paste that also adds rows, make one
+// step. Undo and redo replay steps through a Target; whatever the target records meanwhile is
+// ignored.
+//
+// Rows are 0-based positions; columns use the table's data indices (1 = ROLL NO, 2 = NAME,
+// 3+ = subjects). Not thread-safe.
+public final class EditHistory {
+
+    // Applies replayed changes to the roster
+    public interface Target {
+        // Writes a block of cells, values[i][j] going to row + i, column + j
+        void setCells(int row, int column, String[][] values);
+
+        // Inserts rows (ROLL NO, NAME and subject values each) at the position
+        void insertRows(int position, List<String[]> rows);
+
+        // Removes count rows from the position and returns their values, as insertRows takes them
+        List<String[]> removeRows(int position, int count);
+
+        // Moves the row at from + i to newPositions[i], for every i
+        void moveRows(int from, int[] newPositions);
+
+        void setSubjects(List<String> subjects, List<String> maxMarks);
+    }
+
+    // Rough cost of an object and of an array or string beyond its contents
+    private static final int OBJECT_BYTES = 16;
+    private static final int STRING_BYTES = 40;
+    private static final char END_OF_VALUE = '\0';
+
+    private final Target target;
+    private final long budgetBytes;
+    private final Deque<Step> undoSteps = new ArrayDeque<>(); // Oldest first
+    private final Deque<Step> redoSteps = new ArrayDeque<>(); // Furthest first
+    private long bytes;
+    private int groupDepth;
+    private Step openStep; // Step the current group records into, once it has recorded anything
+    private boolean replaying;
+    private Runnable onChange;
+
+    public EditHistory(Target target, long budgetBytes) {
+        this.target = target;
+        this.budgetBytes = budgetBytes;
+    }
+
+    // Runs after every change to what can be undone or redone, e.g. to enable undo buttons
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    public boolean canUndo() {
+        return groupDepth == 0 && !undoSteps.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return groupDepth == 0 && !redoSteps.isEmpty();
+    }
+
+    // False while a step is being undone or redone, when changes are not recorded; callers can
+    // skip collecting what they would record
+    public boolean isRecording() {
+        return !replaying;
+    }
+
+    // Approximate memory held by the steps
+    public long bytes() {
+        return bytes;
+    }
+
+    public void beginGroup() {
+        groupDepth++;
+    }
+
+    public void endGroup() {
+        if (groupDepth > 0 && --groupDepth == 0) {
+            openStep = null;
+            trim();
+            changed();
+        }
+    }
+
+    // Ends the outermost group and forgets what it recorded, for changes that were reverted some
+    // other way (such as an import restoring the previous roster when it fails)
+    public void cancelGroup() {
+        if (groupDepth > 0 && --groupDepth == 0) {
+            if (openStep != null && undoSteps.peekLast() == openStep) {
+                undoSteps.removeLast();
+                bytes -= openStep.bytes;
+            }
+            openStep = null;
+            changed();
+        }
+    }
+
+    // Forgets every step, for when the roster is replaced by one that was not edited here
+    public void clear() {
+        undoSteps.clear();
+        redoSteps.clear();
+        openStep = null;
+        bytes = 0;
+        changed();
+    }
+
+    // A block of cells changed from before to after (blocks of the same size)
+    public void cellsChanged(int row, int column, String[][] before, String[][] after) {
+        if (replaying || before.length == 0 || before[0].length == 0 || Arrays.deepEquals(before, after)) {
+            return;
+        }
+        int width = before[0].length;
+        record(new CellsDelta(row, column, width, pack(Arrays.asList(before)), pack(Arrays.asList(after))));
+    }
+
+    public void rowsInserted(int position, int count) {
+        if (count <= 0 || replaying) {
+            return;
+        }
+        // Rows added batch after batch, as an import does, grow one delta
+        Step step = groupDepth > 0 ? openStep : null;
+        Delta last = step != null ? step.deltas.get(step.deltas.size() - 1) : null;
+        if (last instanceof RowsDelta && ((RowsDelta) last).extend(position, count)) {
+            return;
+        }
+        record(new RowsDelta(position, count, true));
+    }
+
+    // Rows removed from the position, with their values as they were
+    public void rowsRemoved(int position, List<String[]> values) {
+        if (values.isEmpty() || replaying) {
+            return;
+        }
+        RowsDelta delta = new RowsDelta(position, values.size(), false);
+        delta.pack(values);
+        record(delta);
+    }
+
+    // Rows from + i moved to newPositions[i]
+    public void rowsMoved(int from, int[] newPositions) {
+        if (newPositions.length > 0 && !replaying) {
+            record(new MoveDelta(from, newPositions.clone()));
+        }
+    }
+
+    // Subjects and max marks were redefined. dropped holds, row by row, the values of the subject
+    // columns that went away (after the last subject that is kept), or null if none did.
+    public void subjectsChanged(List<String> oldSubjects, List<String> oldMaxMarks, List<String> newSubjects,
+            List<String> newMaxMarks, String[][] dropped) {
+        if (replaying || oldSubjects.equals(newSubjects) && oldMaxMarks.equals(newMaxMarks)) {
+            return;
+        }
+        boolean hasDropped = dropped != null && dropped.length > 0 && dropped[0].length > 0;
+        record(new SubjectsDelta(oldSubjects, oldMaxMarks, newSubjects, newMaxMarks,
+                hasDropped ? dropped[0].length : 0, hasDropped ? pack(Arrays.asList(dropped)) : null));
+    }
+
+    // Reverts the latest step; false if there is none
+    public boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        Step step = undoSteps.removeLast();
+        replay(step, false);
+        redoSteps.addLast(step);
+        trim();
+        changed();
+        return true;
+    }
+
+    // Applies the step undone last again; false if there is none
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        Step step = redoSteps.removeLast();
+        replay(step, true);
+        undoSteps.addLast(step);
+        trim();
+        changed();
+        return true;
+    }
+
+    private void replay(Step step, boolean forward) {
+        replaying = true;
+        bytes -= step.bytes;
+        try {
+            if (forward) {
+                for (Delta delta : step.deltas) {
+                    delta.redo(target);
+                }
+            } else {
+                for (int i = step.deltas.size() - 1; i >= 0; i--) {
+                    step.deltas.get(i).undo(target);
+                }
+            }
+        } finally {
+            replaying = false;
+            step.recount();
+            bytes += step.bytes;
+        }
+    }
+
+    private void record(Delta delta) {
+        if (replaying) {
+            return;
+        }
+        for (Step step : redoSteps) {
+            bytes -= step.bytes;
+        }
+        redoSteps.clear();
+        Step step = groupDepth > 0 ? openStep : null;
+        if (step == null) {
+            step = new Step();
+            undoSteps.addLast(step);
+            bytes += step.bytes;
+            if (groupDepth > 0) {
+                openStep = step;
+            }
+        }
+        step.deltas.add(delta);
+        step.bytes += delta.bytes();
+        bytes += delta.bytes();
+        if (groupDepth == 0) {
+            trim();
+            changed();
+        }
+    }
+
+    // Forgets the oldest undo steps, then the furthest redo steps, until the history fits its
+    // budget or only one step is left
+    private void trim() {
+        while (bytes > budgetBytes && undoSteps.size() + redoSteps.size() > 1) {
+            Step dropped = !undoSteps.isEmpty() && undoSteps.peekFirst() != openStep
+                    ? undoSteps.removeFirst() : redoSteps.pollFirst();
+            if (dropped == null) {
+                return; // Only the open group is left
+            }
+            bytes -= dropped.bytes;
+        }
+    }
+
+    private void changed() {
+        if (onChange != null) {
+            onChange.run();
+        }
+    }
+
+    // Values of rows of equal width, each value followed by END_OF_VALUE; backslashes and
+    // END_OF_VALUE characters inside values are escaped with a backslash
+    static String pack(List<String[]> rows) {
+        StringBuilder packed = new StringBuilder();
+        for (String[] row : rows) {
+            for (String value : row) {
+                if (value != null) {
+                    for (int i = 0; i < value.length(); i++) {
+                        char c = value.charAt(i);
+                        if (c == '\\' || c == END_OF_VALUE) {
+                            packed.append('\\');
+                        }
+                        packed.append(c);
+                    }
+                }
+                packed.append(END_OF_VALUE);
+            }
+        }
+        return packed.toString();
+    }
+
+    static List<String[]> unpack(String packed, int width) {
+        List<String[]> rows = new ArrayList<>();
+        String[] row = new String[width];
+        int column = 0;
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < packed.length(); i++) {
+            char c = packed.charAt(i);
+            if (c == '\\') {
+                value.append(packed.charAt(++i));
+            } else if (c != END_OF_VALUE) {
+                value.append(c);
+            } else {
+                row[column++] = value.toString();
+                value.setLength(0);
+                if (column == width) {
+                    rows.add(row);
+                    row = new String[width];
+                    column = 0;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static long stringBytes(String packed) {
+        return packed == null ? 0 : STRING_BYTES + packed.length();
+    }
+
+    // Changes that are undone and redone together
+    private static final class Step {
+        final List<Delta> deltas = new ArrayList<>(1);
+        long bytes = OBJECT_BYTES;
+
+        void recount() {
+            bytes = OBJECT_BYTES;
+            for (Delta delta : deltas) {
+                bytes += delta.bytes();
+            }
+        }
+    }
+
+    private abstract static class Delta {
+        abstract void undo(Target target);
+
+        abstract void redo(Target target);
+
+        abstract long bytes();
+    }
+
+    private static final class CellsDelta extends Delta {
+        final int row;
+        final int column;
+        final int width;
+        final String before;
+        final String after;
+
+        CellsDelta(int row, int column, int width, String before, String after) {
+            this.row = row;
+            this.column = column;
+            this.width = width;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        void undo(Target target) {
+            target.setCells(row, column, unpack(before, width).toArray(new String[0][]));
+        }
+
+        @Override
+        void redo(Target target) {
+            target.setCells(row, column, unpack(after, width).toArray(new String[0][]));
+        }
+
+        @Override
+        long bytes() {
+            return OBJECT_BYTES + stringBytes(before) + stringBytes(after);
+        }
+    }
+
+    // Rows inserted or removed at a position. The values are held only while the rows are out of
+    // the roster: after a removal, or after an insertion has been undone.
+    private static final class RowsDelta extends Delta {
+        final int position;
+        final boolean inserted;
+        int count;
+        String values; // Packed, while the rows are out of the roster
+        int width;
+
+        RowsDelta(int position, int count, boolean inserted) {
+            this.position = position;
+            this.count = count;
+            this.inserted = inserted;
+        }
+
+        // Adds rows inserted right after this delta's, if it is an insertion
+        boolean extend(int position, int count) {
+            if (!inserted || values != null || position != this.position + this.count) {
+                return false;
+            }
+            this.count += count;
+            return true;
+        }
+
+        void pack(List<String[]> rows) {
+            width = rows.isEmpty() ? 0 : rows.get(0).length;
+            values = EditHistory.pack(rows);
+        }
+
+        @Override
+        void undo(Target target) {
+            toggle(target, inserted);
+        }
+
+        @Override
+        void redo(Target target) {
+            toggle(target, !inserted);
+        }
+
+        private void toggle(Target target, boolean remove) {
+            if (remove) {
+                pack(target.removeRows(position, count));
+            } else {
+                target.insertRows(position, unpack(values, width));
+                values = null;
+            }
+        }
+
+        @Override
+        long bytes() {
+            return OBJECT_BYTES + stringBytes(values);
+        }
+    }
+
+    private static final class MoveDelta extends Delta {
+        final int from;
+        final int[] newPositions;
+
+        MoveDelta(int from, int[] newPositions) {
+            this.from = from;
+            this.newPositions = newPositions;
+        }
+
+        @Override
+        void undo(Target target) {
+            int[] oldPositions = new int[newPositions.length];
+            for (int i = 0; i < newPositions.length; i++) {
+                oldPositions[newPositions[i] - from] = from + i;
+            }
+            target.moveRows(from, oldPositions);
+        }
+
+        @Override
+        void redo(Target target) {
+            target.moveRows(from, newPositions);
+        }
+
+        @Override
+        long bytes() {
+            return 2L * OBJECT_BYTES + 4L * newPositions.length;
+        }
+    }
+
+    private static final class SubjectsDelta extends Delta {
+        final List<String> oldSubjects;
+        final List<String> oldMaxMarks;
+        final List<String> newSubjects;
+        final List<String> newMaxMarks;
+        final int droppedWidth;
+        final String dropped; // Packed values of the subject columns that went away, or null
+
+        SubjectsDelta(List<String> oldSubjects, List<String> oldMaxMarks, List<String> newSubjects,
+                List<String> newMaxMarks, int droppedWidth, String dropped) {
+            this.oldSubjects = List.copyOf(oldSubjects);
+            this.oldMaxMarks = List.copyOf(oldMaxMarks);
+            this.newSubjects = List.copyOf(newSubjects);
+            this.newMaxMarks = List.copyOf(newMaxMarks);
+            this.droppedWidth = droppedWidth;
+            this.dropped = dropped;
+        }
+
+        @Override
+        void undo(Target target) {
+            target.setSubjects(oldSubjects, oldMaxMarks);
+            if (dropped != null) {
+                int firstDropped = 3 + Math.min(oldSubjects.size(), newSubjects.size());
+                target.setCells(0, firstDropped, unpack(dropped, droppedWidth).toArray(new String[0][]));
+            }
+        }
+
+        @Override
+        void redo(Target target) {
+            target.setSubjects(newSubjects, newMaxMarks);
+        }
+
+        @Override
+        long bytes() {
+            long listBytes = 0;
+            for (List<String> list : List.of(oldSubjects, oldMaxMarks, newSubjects, newMaxMarks)) {
+                for (String value : list) {
+                    listBytes += stringBytes(value);
+                }
+            }
+            return OBJECT_BYTES + listBytes + stringBytes(dropped);
+        }
+    }
+}
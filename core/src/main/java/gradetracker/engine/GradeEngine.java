@@ -0,0 +1,613 @@
+package gradetracker.engine;
+
+import gradetracker.calc.ClassStatistics;
+import gradetracker.calc.ClassSummary;
+import gradetracker.calc.RowStats;
+import gradetracker.calc.SheetCalculator;
+import gradetracker.calc.SheetModel;
+import gradetracker.formula.ColumnLetters;
+import gradetracker.formula.Formula;
+import gradetracker.io.MappedCsvImporter;
+import gradetracker.io.RosterSnapshot;
+import gradetracker.model.ColumnarRoster;
+import gradetracker.model.GradeStore;
+import gradetracker.model.StudentRow;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Grade sheet without any user interface: a roster of students with their marks and formulas,
+// evaluated and summarised the same way the desktop application shows them. Usable from batch
+// jobs and servers without starting JavaFX.
+//
+// Rows are 0-based positions; columns use the table's data indices (1 = ROLL NO, 2 = NAME,
+// 3+ = subjects), and formulas address them by letter (A = ROLL NO, B = NAME, C = first subject).
+//
+// The row list can be supplied by the caller, as the desktop application does with the list
+// behind its table. A caller that changes that list directly must report every change through
+// rowsChanged, and must then not use addRow, insertRow, removeRow or setRoster as well.
+//
+// Not thread-safe; confine each engine to one thread.
+public class GradeEngine {
+
+    // Told which cells may show something different after a change, so that a view can repaint
+    // just those. Called on the engine's thread, once per change.
+    public interface ChangeListener {
+        // Cells (SheetCalculator.cellKey of row and column) whose value may have changed; the
+        // statistics of their rows may have changed too
+        void cellsChanged(Set<Long> cells);
+
+        // Any cell may have changed: rows were inserted, removed or reordered, the subjects were
+        // redefined or everything was recalculated
+        void sheetChanged();
+    }
+
+    private final List<StudentRow> rows;
+    private final GradeStore store;
+    private List<String> subjects = new ArrayList<>();
+    private List<String> maxMarks = new ArrayList<>();
+    private double[] maxMarkValues = new double[0];
+    // Kept up to date by setValue once classSummary has been asked for; null after structural changes
+    private ClassStatistics classStatistics;
+    // Whether the calculator knows the references of every formula, which incremental updates of
+    // classStatistics rely on
+    private boolean formulasRegistered;
+    private long modifications; // Edits and structural changes so far
+    private long copiedAtModification = -1; // For copies: the source's modifications when copied
+    private final List<ChangeListener> listeners = new ArrayList<>();
+    private final SheetModel model = new SheetModel() {
+        @Override
+        public int rowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public String rawValue(int row, int column) {
+            return row >= 0 && row < rows.size() ? store.get(rows.get(row), column) : "";
+        }
+
+        @Override
+        public double plainNumber(int row, int column) {
+            return row >= 0 && row < rows.size() ? store.mark(rows.get(row), column) : Double.NaN;
+        }
+
+        @Override
+        public void plainNumbers(int column, int fromRow, int toRow, double[] out) {
+            store.marks(rows, fromRow, toRow, column, out);
+        }
+
+        @Override
+        public int columnIndex(String letters) {
+            return GradeEngine.this.columnIndex(letters);
+        }
+    };
+    private final SheetCalculator calculator = new SheetCalculator(model);
+    // Evaluates one row outside the roster, for rows being inserted or removed while the sheet has
+    // no formulas, which is the only case a row's figures do not depend on its position
+    private StudentRow detachedRow;
+    private final SheetCalculator detachedCalculator = new SheetCalculator(new SheetModel() {
+        @Override
+        public int rowCount() {
+            return 1;
+        }
+
+        @Override
+        public String rawValue(int row, int column) {
+            return row == 0 ? store.get(detachedRow, column) : "";
+        }
+
+        @Override
+        public double plainNumber(int row, int column) {
+            return row == 0 ? store.mark(detachedRow, column) : Double.NaN;
+        }
+
+        @Override
+        public int columnIndex(String letters) {
+            return GradeEngine.this.columnIndex(letters);
+        }
+    });
+
+    public GradeEngine() {
+        this(new ArrayList<>());
+    }
+
+    public GradeEngine(List<StudentRow> rows) {
+        this(rows, new GradeStore());
+    }
+
+    private GradeEngine(List<StudentRow> rows, GradeStore store) {
+        this.rows = rows;
+        this.store = store;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Reads a roster file in the tracker's CSV layout (UTF-8), memory-mapped.
+    public static GradeEngine load(Path file) throws IOException {
+        ColumnarRoster roster = MappedCsvImporter.read(file, (bytesRead, totalBytes, rowsRead) -> true);
+        if (roster == null) {
+            throw new IOException(file + " is empty or malformed (missing subject/max marks header)");
+        }
+        GradeEngine engine = new GradeEngine();
+        engine.setRoster(roster);
+        return engine;
+    }
+
+    public static GradeEngine load(Reader reader) throws IOException {
+        RosterSnapshot snapshot = RosterSnapshot.readCsv(reader);
+        if (snapshot == null) {
+            throw new IOException("Roster is empty or malformed (missing subject/max marks header)");
+        }
+        GradeEngine engine = new GradeEngine();
+        engine.setRoster(snapshot);
+        return engine;
+    }
+
+    public List<StudentRow> rows() {
+        return rows;
+    }
+
+    public int rowCount() {
+        return rows.size();
+    }
+
+    public List<String> getSubjects() {
+        return Collections.unmodifiableList(subjects);
+    }
+
+    public List<String> getMaxMarks() {
+        return Collections.unmodifiableList(maxMarks);
+    }
+
+    // Redefines the subject columns. Rows keep their values for subjects that still exist by
+    // position and get blank cells for new ones. Max marks are parsed as RowStats.parseMaxMarks.
+    // When only names or max marks change, formula results and subject averages stay valid and
+    // the class statistics just re-add every student's (cheaply recomputed) percentage.
+    public void setSubjects(List<String> subjects, List<String> maxMarks) {
+        boolean sameColumns = subjects.size() == this.subjects.size();
+        this.subjects = new ArrayList<>(subjects);
+        this.maxMarks = new ArrayList<>(maxMarks);
+        store.setSubjectCount(subjects.size());
+        maxMarkValues = RowStats.parseMaxMarks(this.maxMarks, subjects.size());
+        calculator.setMaxMarks(maxMarkValues);
+        detachedCalculator.setMaxMarks(maxMarkValues);
+        modifications++;
+        if (!sameColumns) {
+            calculator.invalidateAll(); // Cells were added or dropped
+            classStatistics = null;
+        } else if (classStatistics != null) {
+            classStatistics.clearStudents();
+            for (int row = 0; row < rows.size(); row++) {
+                classStatistics.addStudent(calculator.rowStats(row));
+            }
+        }
+        fireSheetChanged();
+    }
+
+    // Replaces subjects and rows with the given roster
+    public void setRoster(RosterSnapshot roster) {
+        setSubjects(roster.getSubjects(), roster.getMaxMarks());
+        List<StudentRow> newRows = new ArrayList<>(roster.getRows().size());
+        for (String[] values : roster.getRows()) {
+            newRows.add(createRow(values));
+        }
+        replaceRows(newRows);
+    }
+
+    public void setRoster(ColumnarRoster roster) {
+        setSubjects(roster.getSubjects(), roster.getMaxMarks());
+        replaceRows(createRows(roster, 0, roster.rowCount()));
+    }
+
+    // A row holding ROLL NO, NAME and subject values, not yet part of the roster. Callers that
+    // manage the row list themselves insert it and then call rowsChanged.
+    public StudentRow createRow(String... values) {
+        return store.addRow(values);
+    }
+
+    // Rows [from, to) of an imported roster, copied without going through text; see createRow
+    public List<StudentRow> createRows(ColumnarRoster roster, int from, int to) {
+        return store.addRows(roster, from, to);
+    }
+
+    public StudentRow addRow(String... values) {
+        return insertRow(rows.size(), values);
+    }
+
+    public StudentRow insertRow(int position, String... values) {
+        StudentRow row = createRow(values);
+        rows.add(position, row);
+        rowsChanged(Collections.emptyList(), Collections.singletonList(row));
+        return row;
+    }
+
+    public void removeRow(int position) {
+        rowsChanged(Collections.singletonList(rows.remove(position)), Collections.emptyList());
+    }
+
+    // Call after rows were inserted, removed or reordered in rows(). Formula references are
+    // positional, so every cached formula result is dropped, and so are the class statistics if
+    // any subject cell holds a formula. Without formulas the statistics only take out the removed
+    // rows and add the inserted ones. The removed rows are released.
+    public void rowsChanged(Collection<? extends StudentRow> removed, Collection<? extends StudentRow> added) {
+        modifications++;
+        calculator.invalidateAll();
+        if (classStatistics != null) {
+            if (store.formulaCount() > 0) {
+                classStatistics = null;
+            } else {
+                for (StudentRow row : removed) {
+                    accountDetached(row, false);
+                }
+                for (StudentRow row : added) {
+                    accountDetached(row, true);
+                }
+            }
+        }
+        Set<StudentRow> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!removed.isEmpty() && !added.isEmpty()) {
+            kept.addAll(added); // Rows moved within the list stay alive
+        }
+        for (StudentRow row : removed) {
+            if (!kept.contains(row)) {
+                store.release(row);
+            }
+        }
+        fireSheetChanged();
+    }
+
+    // Drops every cached result and the class statistics, so that all of it is evaluated afresh
+    public void recalculate() {
+        modifications++;
+        calculator.invalidateAll();
+        classStatistics = null;
+        fireSheetChanged();
+    }
+
+    // Raw cell text, formulas unevaluated
+    public String getValue(int row, int column) {
+        return store.get(rows.get(row), column);
+    }
+
+    public String getValue(StudentRow row, int column) {
+        return store.get(row, column);
+    }
+
+    // Raw text of a block of cells, the counterpart of setValues; "" past the last row or column
+    public String[][] getValues(int row, int column, int height, int width) {
+        String[][] values = new String[height][width];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                values[r][c] = model.rawValue(row + r, column + c);
+            }
+        }
+        return values;
+    }
+
+    // Sets a cell's raw text (a mark, text or formula) and returns the cells whose displayed
+    // value may have changed as a result, as SheetCalculator.cellKey values.
+    public Set<Long> setValue(int row, int column, String value) {
+        return setValues(row, column, new String[][] { { value } });
+    }
+
+    // Sets a block of cells as one change, values[i][j] going to row + i, column + j, and returns
+    // the cells whose displayed value may have changed. Cells past the last row or column are
+    // left out. Listeners hear of the whole block at once.
+    public Set<Long> setValues(int row, int column, String[][] values) {
+        modifications++;
+        int endRow = Math.min(rows.size(), row + values.length);
+        int lastColumn = SheetModel.FIRST_SUBJECT_COLUMN - 1 + subjects.size();
+        Set<Long> affected = new HashSet<>();
+        if (classStatistics == null) {
+            for (int r = Math.max(row, 0); r < endRow; r++) {
+                String[] rowValues = values[r - row];
+                for (int c = Math.max(column, 1); c < column + rowValues.length && c <= lastColumn; c++) {
+                    store.set(rows.get(r), c, rowValues[c - column]);
+                    affected.addAll(calculator.cellChanged(r, c));
+                }
+            }
+            return fireCellsChanged(affected);
+        }
+
+        if (!formulasRegistered) {
+            calculator.registerFormulas(); // So the edit reaches every formula that reads the cells
+            formulasRegistered = true;
+        }
+        for (int r = Math.max(row, 0); r < endRow; r++) {
+            for (int c = Math.max(column, 1); c < column + values[r - row].length && c <= lastColumn; c++) {
+                affected.addAll(calculator.affectedCells(r, c));
+            }
+        }
+        Set<Integer> affectedRows = new HashSet<>();
+        for (long cell : affected) {
+            affectedRows.add(SheetCalculator.rowOf(cell));
+        }
+        account(affected, affectedRows, false);
+        for (int r = Math.max(row, 0); r < endRow; r++) {
+            String[] rowValues = values[r - row];
+            for (int c = Math.max(column, 1); c < column + rowValues.length && c <= lastColumn; c++) {
+                store.set(rows.get(r), c, rowValues[c - column]);
+                calculator.cellChanged(r, c);
+            }
+        }
+        account(affected, affectedRows, true);
+        return fireCellsChanged(affected);
+    }
+
+    // Copies the first row of rows [firstRow, lastRow] x columns [firstColumn, lastColumn] into
+    // the rows below it, formulas moved along (Formula.moved), as one setValues. Returns the
+    // values written, whose top left cell is (firstRow + 1, firstColumn).
+    public String[][] fillDown(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        String[][] block = new String[Math.max(0, lastRow - firstRow)][lastColumn - firstColumn + 1];
+        for (int c = firstColumn; c <= lastColumn; c++) {
+            String source = getValue(firstRow, c);
+            for (int offset = 1; offset <= block.length; offset++) {
+                block[offset - 1][c - firstColumn] = Formula.moved(source, offset, 0);
+            }
+        }
+        setValues(firstRow + 1, firstColumn, block);
+        return block;
+    }
+
+    // Copies the first column of the block into the columns to its right, like fillDown. Returns
+    // the values written, whose top left cell is (firstRow, firstColumn + 1).
+    public String[][] fillRight(int firstRow, int lastRow, int firstColumn, int lastColumn) {
+        String[][] block = new String[lastRow - firstRow + 1][Math.max(0, lastColumn - firstColumn)];
+        for (int r = firstRow; r <= lastRow; r++) {
+            String source = getValue(r, firstColumn);
+            for (int offset = 1; offset <= block[r - firstRow].length; offset++) {
+                block[r - firstRow][offset - 1] = Formula.moved(source, 0, offset);
+            }
+        }
+        setValues(firstRow, firstColumn + 1, block);
+        return block;
+    }
+
+    // Text shown for a cell: formulas evaluated and formatted to two decimals, or "Error"
+    public String displayValue(int row, int column) {
+        return calculator.displayValue(row, column);
+    }
+
+    public double numericValue(int row, int column) {
+        return calculator.numericValue(row, column);
+    }
+
+    public RowStats rowStats(int row) {
+        return calculator.rowStats(row);
+    }
+
+    // A calculator of its own over this engine's cells, so rows can be evaluated on several
+    // threads at once, one calculator per thread. Only valid while the engine is not modified.
+    public SheetCalculator newCalculator() {
+        SheetCalculator reader = new SheetCalculator(model);
+        reader.setMaxMarks(maxMarkValues);
+        return reader;
+    }
+
+    // Copy of the roster that later edits to this engine do not affect, to evaluate on other
+    // threads. Cells are copied as arrays, so this is much cheaper than evaluating them.
+    public GradeEngine copy() {
+        GradeEngine copy = new GradeEngine(new ArrayList<>(rows), new GradeStore(store));
+        copy.subjects = new ArrayList<>(subjects);
+        copy.maxMarks = new ArrayList<>(maxMarks);
+        copy.maxMarkValues = maxMarkValues;
+        copy.calculator.setMaxMarks(maxMarkValues);
+        copy.detachedCalculator.setMaxMarks(maxMarkValues);
+        copy.copiedAtModification = modifications;
+        return copy;
+    }
+
+    // Mean percentage over all students, or NaN if there are none or any student's percentage
+    // cannot be computed
+    public double classAveragePercentage() {
+        double total = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            double percentage = calculator.rowStats(row).getPercentage();
+            if (Double.isNaN(percentage) || Double.isInfinite(percentage)) {
+                return Double.NaN;
+            }
+            total += percentage;
+        }
+        return rows.isEmpty() ? Double.NaN : total / rows.size();
+    }
+
+    // Mean, spread, percentiles, grade distribution and subject averages of the class. The first
+    // call evaluates every row once; after that the figures are kept up to date by setValue,
+    // which only revisits the cells an edit affects, until the next structural change.
+    public ClassSummary classSummary() {
+        if (classStatistics == null) {
+            classStatistics = accumulate(calculator, 0, rows.size());
+            formulasRegistered = true; // Evaluating every row registered every formula
+        }
+        return classStatistics.summary(subjects);
+    }
+
+    // Same as classSummary, with the first pass split into chunks of at most chunkRows evaluated in
+    // parallel on the pool, each with its own calculator, and then merged. The engine must not be
+    // modified meanwhile: run it on a copy, then hand the result back with adoptClassStatistics.
+    public ClassSummary classSummary(ForkJoinPool pool, int chunkRows) {
+        if (classStatistics == null) {
+            classStatistics = pool.invoke(new ClassStatisticsTask(0, rows.size(), Math.max(1, chunkRows)));
+            formulasRegistered = false; // Those calculators are gone; this one has seen no formula
+        }
+        return classStatistics.summary(subjects);
+    }
+
+    // Whether classSummary is available without a pass over the rows
+    public boolean hasClassStatistics() {
+        return classStatistics != null;
+    }
+
+    // Takes over the class statistics computed on a copy of this engine, if the engine has not
+    // been modified since the copy was made. Returns whether it did.
+    public boolean adoptClassStatistics(GradeEngine copy) {
+        if (copy.copiedAtModification != modifications || copy.classStatistics == null) {
+            return false;
+        }
+        classStatistics = copy.classStatistics;
+        formulasRegistered = false;
+        return true;
+    }
+
+    public boolean isRowEmpty(StudentRow row) {
+        return store.isEmpty(row);
+    }
+
+    // ROLL NO, NAME and one raw value per subject
+    public String[] rowValues(StudentRow row) {
+        return store.rowValues(row);
+    }
+
+    // Copy of the roster that can be handed to another thread
+    public RosterSnapshot snapshot() {
+        List<String[]> values = new ArrayList<>(rows.size());
+        for (StudentRow row : rows) {
+            values.add(store.rowValues(row));
+        }
+        return new RosterSnapshot(subjects, maxMarks, values);
+    }
+
+    public void writeCsv(Writer writer) throws IOException {
+        snapshot().writeCsv(writer);
+    }
+
+    public void save(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeCsv(writer);
+        }
+    }
+
+    // Column index for the letters used in formulas (A..Z, AA, AB, ...), or -1. A is ROLL NO, B is
+    // NAME and C onwards are the subjects; letters past the last subject read as blank cells.
+    public int columnIndex(String letters) {
+        return ColumnLetters.toIndex(letters);
+    }
+
+    private ClassStatistics accumulate(SheetCalculator rowCalculator, int from, int to) {
+        ClassStatistics statistics = new ClassStatistics(subjects.size());
+        for (int row = from; row < to; row++) {
+            statistics.addStudent(rowCalculator.rowStats(row));
+            for (int subject = 0; subject < subjects.size(); subject++) {
+                int column = SheetModel.FIRST_SUBJECT_COLUMN + subject;
+                statistics.addCell(subject, rowCalculator.subjectMark(row, column), rowCalculator.isError(row, column));
+            }
+        }
+        return statistics;
+    }
+
+    // Takes the contribution of the given cells and their rows out of the class statistics, or
+    // puts it back in, as the calculator currently evaluates them
+    private void account(Set<Long> cells, Set<Integer> affectedRows, boolean add) {
+        for (long cell : cells) {
+            int column = SheetCalculator.columnOf(cell);
+            int subject = column - SheetModel.FIRST_SUBJECT_COLUMN;
+            int row = SheetCalculator.rowOf(cell);
+            if (subject < 0 || subject >= subjects.size() || row >= rows.size()) {
+                continue;
+            }
+            double mark = calculator.subjectMark(row, column);
+            boolean error = calculator.isError(row, column);
+            if (add) {
+                classStatistics.addCell(subject, mark, error);
+            } else {
+                classStatistics.removeCell(subject, mark, error);
+            }
+        }
+        for (int row : affectedRows) {
+            if (row >= rows.size()) {
+                continue;
+            }
+            if (add) {
+                classStatistics.addStudent(calculator.rowStats(row));
+            } else {
+                classStatistics.removeStudent(calculator.rowStats(row));
+            }
+        }
+    }
+
+    // Adds or takes out a row that has no formulas, wherever it is
+    private void accountDetached(StudentRow row, boolean add) {
+        detachedRow = row;
+        detachedCalculator.invalidateAll();
+        for (int subject = 0; subject < subjects.size(); subject++) {
+            double mark = detachedCalculator.subjectMark(0, SheetModel.FIRST_SUBJECT_COLUMN + subject);
+            if (add) {
+                classStatistics.addCell(subject, mark, false);
+            } else {
+                classStatistics.removeCell(subject, mark, false);
+            }
+        }
+        if (add) {
+            classStatistics.addStudent(detachedCalculator.rowStats(0));
+        } else {
+            classStatistics.removeStudent(detachedCalculator.rowStats(0));
+        }
+        detachedRow = null;
+    }
+
+    // Class statistics of the rows [from, to)
+    private final class ClassStatisticsTask extends RecursiveTask<ClassStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int chunkRows;
+
+        ClassStatisticsTask(int from, int to, int chunkRows) {
+            this.from = from;
+            this.to = to;
+            this.chunkRows = chunkRows;
+        }
+
+        @Override
+        protected ClassStatistics compute() {
+            if (to - from > chunkRows) {
+                int middle = (from + to) >>> 1;
+                ClassStatisticsTask upper = new ClassStatisticsTask(middle, to, chunkRows);
+                upper.fork();
+                ClassStatistics lower = new ClassStatisticsTask(from, middle, chunkRows).compute();
+                return lower.merge(upper.join());
+            }
+            return accumulate(newCalculator(), from, to);
+        }
+    }
+
+    private Set<Long> fireCellsChanged(Set<Long> cells) {
+        for (ChangeListener listener : listeners) {
+            listener.cellsChanged(cells);
+        }
+        return cells;
+    }
+
+    private void fireSheetChanged() {
+        for (ChangeListener listener : listeners) {
+            listener.sheetChanged();
+        }
+    }
+
+    private void replaceRows(List<StudentRow> newRows) {
+        List<StudentRow> removed = new ArrayList<>(rows);
+        rows.clear();
+        rows.addAll(newRows);
+        rowsChanged(removed, newRows);
+    }
+}
@@ -0,0 +1,54 @@
+package gradetracker.formula;
+
+// Spreadsheet column letters and their 1-based column numbers: A..Z are 1..26, AA is 27, AZ is
+// 52, BA is 53 and so on, without a limit on the width. Column numbers match the sheet's data
+// indices, so A is ROLL NO, B is NAME and C onwards are the subjects.
+public final class ColumnLetters {
+
+    // Longest letters accepted; "FXSHRXW" would overflow an int
+    private static final int MAX_LENGTH = 6;
+    // Letters of the first columns, so that naming a column does not build a string each time
+    private static final String[] LETTERS = new String[26 + 26 * 26 + 1];
+
+    static {
+        for (int column = 1; column < LETTERS.length; column++) {
+            LETTERS[column] = build(column);
+        }
+    }
+
+    private ColumnLetters() {
+    }
+
+    // Column number of letters such as "C" or "AB" (either case), or -1 if they are not letters
+    public static int toIndex(String letters) {
+        int length = letters.length();
+        if (length == 0 || length > MAX_LENGTH) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = (letters.charAt(i) | 0x20) - 'a' + 1; // Folds upper case onto lower case
+            if (digit < 1 || digit > 26) {
+                return -1;
+            }
+            index = index * 26 + digit;
+        }
+        return index;
+    }
+
+    // Letters of a column number (1 or more)
+    public static String toLetters(int index) {
+        if (index < 1) {
+            throw new IllegalArgumentException("Column numbers start at 1: " + index);
+        }
+        return index < LETTERS.length ? LETTERS[index] : build(index);
+    }
+
+    private static String build(int index) {
+        StringBuilder letters = new StringBuilder();
+        for (int remaining = index; remaining > 0; remaining = (remaining - 1) / 26) {
+            letters.append((char) ('A' + (remaining - 1) % 26));
+        }
+        return letters.reverse().toString();
+    }
+}
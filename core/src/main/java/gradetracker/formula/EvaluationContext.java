@@ -0,0 +1,38 @@
+package gradetracker.formula;
+
+// Supplies cell data to a compiled formula while it is being evaluated.
+public interface EvaluationContext {
+
+    // Maps column letters (e.g. "C") to the sheet's data index, or -1 if no such column exists.
+    int columnIndex(String letters);
+
+    // Numeric value of a cell addressed by its 1-based row and data column index.
+    // Blank, textual and out-of-range cells read as 0.
+    double cellValue(int row, int column);
+
+    // Sum of cellValue over rows fromRow..toRow (1-based, inclusive) of one column. Contexts with
+    // the column data at hand override this to add whole blocks of cells at once.
+    default double sumColumn(int column, int fromRow, int toRow) {
+        double sum = 0;
+        for (int row = fromRow; row <= toRow; row++) {
+            sum += cellValue(row, column);
+        }
+        return sum;
+    }
+
+    // Last row that can hold data; rows below it read as blank
+    default int lastRow() {
+        return Integer.MAX_VALUE;
+    }
+
+    // Numbers held in rows fromRow..toRow (1-based, inclusive) of one column, written in row
+    // order into out from offset on; returns how many were written. Blank cells, text and
+    // formulas in error are left out. This default cannot tell a blank cell from 0 and writes
+    // cellValue for every row.
+    default int numbers(int column, int fromRow, int toRow, double[] out, int offset) {
+        for (int row = fromRow; row <= toRow; row++) {
+            out[offset + row - fromRow] = cellValue(row, column);
+        }
+        return Math.max(0, toRow - fromRow + 1);
+    }
+}
@@ -0,0 +1,270 @@
+package gradetracker.formula;
+
+import java.util.List;
+
+// Node of a compiled formula tree. Trees are immutable once built by FormulaParser, so a single
+// tree can be evaluated any number of times against different contexts.
+abstract class Expr {
+
+    // Value of the node with every cell reference moved rowShift rows down, so that one tree
+    // serves a formula filled down a column (see Formula.shifted)
+    abstract double evaluate(EvaluationContext ctx, int rowShift);
+
+    // Reports the cells and ranges this node reads; leaf nodes without references do nothing
+    void visitReferences(Formula.ReferenceVisitor visitor) {
+    }
+
+    static final class Literal extends Expr {
+        final double value;
+
+        Literal(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            return value;
+        }
+    }
+
+    // A single cell such as C4; unknown columns read as 0
+    static final class CellRef extends Expr {
+        final String column;
+        final int row;
+
+        CellRef(String column, int row) {
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            int col = ctx.columnIndex(column);
+            return col < 0 ? 0.0 : ctx.cellValue(row + rowShift, col);
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            visitor.visit(column, row, column, row);
+        }
+    }
+
+    // A rectangular block such as C2:D10; only meaningful as a function argument
+    static final class Range extends Expr {
+        final CellRef from;
+        final CellRef to;
+
+        Range(CellRef from, CellRef to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            throw new FormulaException("Range " + from.column + (from.row + rowShift) + ":" + to.column
+                    + (to.row + rowShift) + " can only be used inside a function");
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            visitor.visit(from.column, from.row, to.column, to.row);
+        }
+    }
+
+    static final class Negate extends Expr {
+        final Expr operand;
+
+        Negate(Expr operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            return -operand.evaluate(ctx, rowShift);
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            operand.visitReferences(visitor);
+        }
+    }
+
+    static final class Binary extends Expr {
+        final char operator;
+        final Expr left;
+        final Expr right;
+
+        Binary(char operator, Expr left, Expr right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            double l = left.evaluate(ctx, rowShift);
+            double r = right.evaluate(ctx, rowShift);
+            switch (operator) {
+                case '+':
+                    return l + r;
+                case '-':
+                    return l - r;
+                case '*':
+                    return l * r;
+                case '/':
+                    return l / r;
+                case '%':
+                    return l % r;
+                default:
+                    throw new FormulaException("Unknown operator '" + operator + "'");
+            }
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            left.visitReferences(visitor);
+            right.visitReferences(visitor);
+        }
+    }
+
+    // Comparison giving 1 when it holds and 0 otherwise, for IF
+    static final class Compare extends Expr {
+        final String operator;
+        final Expr left;
+        final Expr right;
+
+        Compare(String operator, Expr left, Expr right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            double l = left.evaluate(ctx, rowShift);
+            double r = right.evaluate(ctx, rowShift);
+            boolean holds;
+            switch (operator) {
+                case "=":
+                    holds = l == r;
+                    break;
+                case "<>":
+                    holds = l != r;
+                    break;
+                case "<":
+                    holds = l < r;
+                    break;
+                case "<=":
+                    holds = l <= r;
+                    break;
+                case ">":
+                    holds = l > r;
+                    break;
+                case ">=":
+                    holds = l >= r;
+                    break;
+                default:
+                    throw new FormulaException("Unknown operator '" + operator + "'");
+            }
+            return holds ? 1.0 : 0.0;
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            left.visitReferences(visitor);
+            right.visitReferences(visitor);
+        }
+    }
+
+    // Any function other than SUM/AVERAGE, resolved in FunctionRegistry on each evaluation so
+    // that functions registered after a formula was compiled are still found
+    static final class Call extends Expr {
+        final String function;
+        final Expr[] args;
+
+        Call(String function, List<Expr> args) {
+            this.function = function;
+            this.args = args.toArray(new Expr[0]);
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            FormulaFunction implementation = FunctionRegistry.lookup(function);
+            if (implementation == null) {
+                throw new FormulaException("Unknown function " + function);
+            }
+            FunctionArguments arguments = new FunctionArguments(function, args, ctx, rowShift);
+            try {
+                return implementation.apply(arguments);
+            } finally {
+                arguments.release();
+            }
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            for (Expr arg : args) {
+                arg.visitReferences(visitor);
+            }
+        }
+    }
+
+    // SUM/AVERAGE over any mix of ranges, cell references and expressions. Every cell of a range
+    // counts towards an average, blanks included, matching the original regex-based evaluator.
+    static final class Aggregate extends Expr {
+        final String function;
+        final Expr[] args;
+        private final boolean average;
+
+        Aggregate(String function, List<Expr> args) {
+            this.function = function;
+            this.args = args.toArray(new Expr[0]);
+            this.average = function.equals("AVERAGE");
+        }
+
+        @Override
+        double evaluate(EvaluationContext ctx, int rowShift) {
+            double sum = 0;
+            int count = 0;
+            for (Expr arg : args) {
+                if (arg instanceof Range) {
+                    Range range = (Range) arg;
+                    int startCol = ctx.columnIndex(range.from.column);
+                    int endCol = ctx.columnIndex(range.to.column);
+                    if (startCol < 0 || endCol < 0) {
+                        continue;
+                    }
+                    int rowStart = Math.min(range.from.row, range.to.row) + rowShift;
+                    int rowEnd = Math.max(range.from.row, range.to.row) + rowShift;
+                    int colStart = Math.min(startCol, endCol);
+                    int colEnd = Math.max(startCol, endCol);
+                    for (int c = colStart; c <= colEnd; c++) {
+                        sum += ctx.sumColumn(c, rowStart, rowEnd);
+                    }
+                    count += (rowEnd - rowStart + 1) * (colEnd - colStart + 1);
+                } else if (arg instanceof CellRef) {
+                    CellRef ref = (CellRef) arg;
+                    int col = ctx.columnIndex(ref.column);
+                    if (col >= 0) {
+                        sum += ctx.cellValue(ref.row + rowShift, col);
+                        count++;
+                    }
+                } else {
+                    sum += arg.evaluate(ctx, rowShift);
+                    count++;
+                }
+            }
+            if (!average) {
+                return sum;
+            }
+            return count == 0 ? 0.0 : sum / count;
+        }
+
+        @Override
+        void visitReferences(Formula.ReferenceVisitor visitor) {
+            for (Expr arg : args) {
+                arg.visitReferences(visitor);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package gradetracker.formula;
+
+// A formula compiled once from its source text into an evaluable tree. Compilation never throws:
+// syntax errors are kept and reported each time the formula is evaluated, so callers can cache
+// broken formulas just like valid ones. A formula can share its tree with one compiled in another
+// row (see FormulaCache); its references are then moved by rowShift rows when evaluated.
+public final class Formula {
+
+    // Receives every cell or range a formula reads; single cells are reported with from == to.
+    public interface ReferenceVisitor {
+        void visit(String fromColumn, int fromRow, String toColumn, int toRow);
+    }
+
+    private final String source;
+    private final Expr root;
+    private final String error;
+    private final int rowShift;
+
+    private Formula(String source, Expr root, String error, int rowShift) {
+        this.source = source;
+        this.root = root;
+        this.error = error;
+        this.rowShift = rowShift;
+    }
+
+    // Compiles a cell value such as "=SUM(C2:C4)*2"; the leading '=' is optional.
+    public static Formula compile(String text) {
+        String body = text.startsWith("=") ? text.substring(1) : text;
+        try {
+            return new Formula(text, FormulaParser.parse(body), null, 0);
+        } catch (FormulaException e) {
+            return new Formula(text, null, e.getMessage(), 0);
+        }
+    }
+
+    // The same formula as written rowShift rows further down, e.g. =C2*2 for =C1*2 shifted by 1
+    Formula shifted(String source, int rowShift) {
+        return new Formula(source, root, error, this.rowShift + rowShift);
+    }
+
+    public static boolean isFormula(String value) {
+        return value != null && value.startsWith("=");
+    }
+
+    // The formula as it reads when copied rowOffset rows down and columnOffset columns to the
+    // right, as fill-down and fill-right do: =C1*2 filled one row down is =C2*2. Every reference
+    // is relative. A reference moved off the sheet becomes #REF!, which does not evaluate. Text
+    // that is not a formula, or does not tokenize, is returned as it is.
+    public static String moved(String text, int rowOffset, int columnOffset) {
+        if (!isFormula(text) || (rowOffset == 0 && columnOffset == 0)) {
+            return text;
+        }
+        String body = text.substring(1);
+        FormulaLexer lexer = new FormulaLexer(body);
+        StringBuilder moved = new StringBuilder(text.length() + 8).append('=');
+        int copied = 0;
+        try {
+            for (Token token = lexer.next(); token.type != Token.Type.END; token = lexer.next()) {
+                if (token.type == Token.Type.CELL) {
+                    moved.append(body, copied, token.position);
+                    moved.append(movedReference(token.text, rowOffset, columnOffset));
+                    copied = token.position + token.text.length();
+                }
+            }
+        } catch (FormulaException | NumberFormatException e) {
+            return text;
+        }
+        return moved.append(body, copied, body.length()).toString();
+    }
+
+    private static String movedReference(String reference, int rowOffset, int columnOffset) {
+        int split = 0;
+        while (Character.isLetter(reference.charAt(split))) {
+            split++;
+        }
+        int column = ColumnLetters.toIndex(reference.substring(0, split)) + columnOffset;
+        int row = Integer.parseInt(reference.substring(split)) + rowOffset;
+        return row < 1 || column < 1 ? "#REF!" : ColumnLetters.toLetters(column) + row;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isValid() {
+        return root != null;
+    }
+
+    public double evaluate(EvaluationContext ctx) {
+        if (root == null) {
+            throw new FormulaException(error);
+        }
+        return root.evaluate(ctx, rowShift);
+    }
+
+    public void forEachReference(ReferenceVisitor visitor) {
+        if (root == null) {
+            return;
+        }
+        if (rowShift == 0) {
+            root.visitReferences(visitor);
+        } else {
+            root.visitReferences((fromColumn, fromRow, toColumn, toRow) ->
+                    visitor.visit(fromColumn, fromRow + rowShift, toColumn, toRow + rowShift));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package gradetracker.formula;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Compiled formulas shared by every calculator, so a formula is parsed once however many cells
+// and sheets hold it. Entries are keyed by the formula's normalized text: tokens upper-cased,
+// whitespace dropped, and each cell reference's row written relative to the row holding the
+// formula. =SUM(C2:C40) in row 41 and =SUM(C3:C41) in row 42 (a formula filled down a column)
+// therefore share one tree, which is moved to the right rows when evaluated.
+//
+// Bounded: the least recently used entry is evicted once maxEntries is reached. Thread-safe.
+public final class FormulaCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final FormulaCache SHARED = new FormulaCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public FormulaCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > FormulaCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // The cache used by calculators that are not given one
+    public static FormulaCache shared() {
+        return SHARED;
+    }
+
+    // The compiled form of a cell's formula text; row is the row of the cell holding it, in the
+    // same 1-based numbering as the references.
+    public Formula get(String text, int row) {
+        String key = normalize(text, row);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.formula.shifted(text, row - entry.row);
+            }
+            misses++;
+            Formula formula = Formula.compile(text);
+            entries.put(key, new Entry(formula, row));
+            return formula;
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d formulas cached, %d hits, %d misses, %d evictions", entries.size(), hits, misses,
+                evictions);
+    }
+
+    // Key under which formulas that differ only in spacing, letter case or row position share an
+    // entry. Text that does not tokenize is keyed as it is (with its row, as its errors may be).
+    static String normalize(String text, int row) {
+        String body = text.startsWith("=") ? text.substring(1) : text;
+        StringBuilder key = new StringBuilder(body.length() + 8);
+        try {
+            FormulaLexer lexer = new FormulaLexer(body);
+            for (Token token = lexer.next(); token.type != Token.Type.END; token = lexer.next()) {
+                if (token.type == Token.Type.CELL) {
+                    int digits = firstDigit(token.text);
+                    key.append(token.text, 0, digits).append('[')
+                            .append(Long.parseLong(token.text.substring(digits)) - row).append(']');
+                } else {
+                    key.append(token.text);
+                }
+                key.append(' '); // Keeps adjacent tokens such as "1 2" apart from "12"
+            }
+            return key.toString();
+        } catch (FormulaException | NumberFormatException e) {
+            return "!" + row + "!" + text;
+        }
+    }
+
+    private static int firstDigit(String cell) {
+        int i = 0;
+        while (i < cell.length() && !Character.isDigit(cell.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Entry {
+        final Formula formula;
+        final int row; // Row the formula was compiled in
+
+        Entry(Formula formula, int row) {
+            this.formula = formula;
+            this.row = row;
+        }
+    }
+}
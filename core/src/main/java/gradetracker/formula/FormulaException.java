@@ -0,0 +1,11 @@
+package gradetracker.formula;
+
+// Raised when a formula cannot be tokenized, parsed or evaluated.
+public class FormulaException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public FormulaException(String message) {
+        super(message);
+    }
+}
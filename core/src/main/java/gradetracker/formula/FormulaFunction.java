@@ -0,0 +1,19 @@
+package gradetracker.formula;
+
+// A function formulas can call by name, such as MEDIAN(C2:C40). Built-in functions and grading
+// functions of our own are added to FunctionRegistry the same way; the parser and evaluator do
+// not need to know about them.
+@FunctionalInterface
+public interface FormulaFunction {
+
+    // Value of the function. Arguments are evaluated on request, so a function such as IF only
+    // evaluates the ones it uses. Throw FormulaException (see FunctionArguments.error) when the
+    // arguments are unusable; the cell then shows an error.
+    double apply(FunctionArguments args);
+
+    // Registers functions when found on the class path through java.util.ServiceLoader (listed
+    // in META-INF/services/gradetracker.formula.FormulaFunction$Plugin)
+    interface Plugin {
+        void registerFunctions();
+    }
+}
@@ -0,0 +1,115 @@
+package gradetracker.formula;
+
+import java.util.Locale;
+
+// Splits a formula body (the text after '=') into tokens. Letters are upper-cased so
+// cell references and function names are case-insensitive, as they were with the regex matcher.
+// Upper-casing uses Locale.ROOT: in a Turkish locale "if" would otherwise become "İF".
+final class FormulaLexer {
+
+    private final String input;
+    private int pos;
+
+    FormulaLexer(String input) {
+        this.input = input;
+    }
+
+    Token next() {
+        while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= input.length()) {
+            return new Token(Token.Type.END, "", pos);
+        }
+
+        int start = pos;
+        char c = input.charAt(pos);
+        if (isDigit(c) || (c == '.' && pos + 1 < input.length() && isDigit(input.charAt(pos + 1)))) {
+            return number(start);
+        }
+        if (isLetter(c)) {
+            while (pos < input.length() && isLetter(input.charAt(pos))) {
+                pos++;
+            }
+            if (pos < input.length() && isDigit(input.charAt(pos))) {
+                while (pos < input.length() && isDigit(input.charAt(pos))) {
+                    pos++;
+                }
+                return new Token(Token.Type.CELL, input.substring(start, pos).toUpperCase(Locale.ROOT), start);
+            }
+            return new Token(Token.Type.NAME, input.substring(start, pos).toUpperCase(Locale.ROOT), start);
+        }
+
+        pos++;
+        switch (c) {
+            case '+':
+                return new Token(Token.Type.PLUS, "+", start);
+            case '-':
+                return new Token(Token.Type.MINUS, "-", start);
+            case '*':
+                return new Token(Token.Type.STAR, "*", start);
+            case '/':
+                return new Token(Token.Type.SLASH, "/", start);
+            case '%':
+                return new Token(Token.Type.PERCENT, "%", start);
+            case '(':
+                return new Token(Token.Type.LPAREN, "(", start);
+            case ')':
+                return new Token(Token.Type.RPAREN, ")", start);
+            case ',':
+                return new Token(Token.Type.COMMA, ",", start);
+            case ':':
+                return new Token(Token.Type.COLON, ":", start);
+            case '=':
+                return new Token(Token.Type.COMPARE, "=", start);
+            case '<':
+                if (pos < input.length() && (input.charAt(pos) == '=' || input.charAt(pos) == '>')) {
+                    pos++;
+                }
+                return new Token(Token.Type.COMPARE, input.substring(start, pos), start);
+            case '>':
+                if (pos < input.length() && input.charAt(pos) == '=') {
+                    pos++;
+                }
+                return new Token(Token.Type.COMPARE, input.substring(start, pos), start);
+            default:
+                throw new FormulaException("Unexpected character '" + c + "' at position " + start);
+        }
+    }
+
+    // Reads a decimal literal with an optional fraction and exponent (e.g. 12, 0.5, .5, 1e3)
+    private Token number(int start) {
+        while (pos < input.length() && isDigit(input.charAt(pos))) {
+            pos++;
+        }
+        if (pos < input.length() && input.charAt(pos) == '.') {
+            pos++;
+            while (pos < input.length() && isDigit(input.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (pos < input.length() && (input.charAt(pos) == 'e' || input.charAt(pos) == 'E')) {
+            int exponentStart = pos;
+            pos++;
+            if (pos < input.length() && (input.charAt(pos) == '+' || input.charAt(pos) == '-')) {
+                pos++;
+            }
+            if (pos < input.length() && isDigit(input.charAt(pos))) {
+                while (pos < input.length() && isDigit(input.charAt(pos))) {
+                    pos++;
+                }
+            } else {
+                pos = exponentStart; // Not an exponent after all
+            }
+        }
+        return new Token(Token.Type.NUMBER, input.substring(start, pos), start);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+}
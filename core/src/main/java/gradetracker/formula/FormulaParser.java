@@ -0,0 +1,150 @@
+package gradetracker.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Recursive-descent parser turning a formula body into an Expr tree.
+//
+//   compare := expr (('=' | '<>' | '<' | '<=' | '>' | '>=') expr)?
+//   expr    := term (('+' | '-') term)*
+//   term    := unary (('*' | '/' | '%') unary)*
+//   unary   := ('+' | '-') unary | primary
+//   primary := NUMBER | CELL | NAME '(' args ')' | '(' compare ')'
+//   args    := arg (',' arg)*
+//   arg     := CELL ':' CELL | compare
+//
+// SUM and AVERAGE compile to Aggregate nodes; every other function name is looked up in
+// FunctionRegistry when the formula is evaluated.
+final class FormulaParser {
+
+    private final FormulaLexer lexer;
+    private Token current;
+
+    private FormulaParser(String body) {
+        this.lexer = new FormulaLexer(body);
+        this.current = lexer.next();
+    }
+
+    static Expr parse(String body) {
+        FormulaParser parser = new FormulaParser(body);
+        Expr expr = parser.comparison();
+        if (parser.current.type != Token.Type.END) {
+            throw new FormulaException("Unexpected " + parser.current + " at position " + parser.current.position);
+        }
+        return expr;
+    }
+
+    private Expr comparison() {
+        Expr left = expression();
+        if (current.type == Token.Type.COMPARE) {
+            String operator = advance().text;
+            return new Expr.Compare(operator, left, expression());
+        }
+        return left;
+    }
+
+    private Expr expression() {
+        Expr left = term();
+        while (current.type == Token.Type.PLUS || current.type == Token.Type.MINUS) {
+            char operator = advance().text.charAt(0);
+            left = new Expr.Binary(operator, left, term());
+        }
+        return left;
+    }
+
+    private Expr term() {
+        Expr left = unary();
+        while (current.type == Token.Type.STAR || current.type == Token.Type.SLASH
+                || current.type == Token.Type.PERCENT) {
+            char operator = advance().text.charAt(0);
+            left = new Expr.Binary(operator, left, unary());
+        }
+        return left;
+    }
+
+    private Expr unary() {
+        if (current.type == Token.Type.MINUS) {
+            advance();
+            return new Expr.Negate(unary());
+        }
+        if (current.type == Token.Type.PLUS) {
+            advance();
+            return unary();
+        }
+        return primary();
+    }
+
+    private Expr primary() {
+        Token token = advance();
+        switch (token.type) {
+            case NUMBER:
+                return new Expr.Literal(Double.parseDouble(token.text));
+            case CELL:
+                return cellRef(token);
+            case NAME:
+                return function(token);
+            case LPAREN:
+                Expr inner = comparison();
+                expect(Token.Type.RPAREN);
+                return inner;
+            default:
+                throw new FormulaException("Unexpected " + token + " at position " + token.position);
+        }
+    }
+
+    private Expr function(Token name) {
+        expect(Token.Type.LPAREN);
+        List<Expr> args = new ArrayList<>();
+        if (current.type != Token.Type.RPAREN) {
+            args.add(argument());
+            while (current.type == Token.Type.COMMA) {
+                advance();
+                args.add(argument());
+            }
+        }
+        expect(Token.Type.RPAREN);
+        if (name.text.equals("SUM") || name.text.equals("AVERAGE")) {
+            return new Expr.Aggregate(name.text, args);
+        }
+        return new Expr.Call(name.text, args);
+    }
+
+    private Expr argument() {
+        Expr arg = comparison();
+        if (current.type == Token.Type.COLON && arg instanceof Expr.CellRef) {
+            advance();
+            Token end = expect(Token.Type.CELL);
+            return new Expr.Range((Expr.CellRef) arg, cellRef(end));
+        }
+        return arg;
+    }
+
+    private static Expr.CellRef cellRef(Token token) {
+        int split = 0;
+        while (Character.isLetter(token.text.charAt(split))) {
+            split++;
+        }
+        try {
+            return new Expr.CellRef(token.text.substring(0, split), Integer.parseInt(token.text.substring(split)));
+        } catch (NumberFormatException e) {
+            throw new FormulaException("Row number too large in " + token.text);
+        }
+    }
+
+    private Token expect(Token.Type type) {
+        if (current.type != type) {
+            throw new FormulaException("Expected " + type.name().toLowerCase(Locale.ROOT) + " but found " + current
+                    + " at position " + current.position);
+        }
+        return advance();
+    }
+
+    private Token advance() {
+        Token token = current;
+        if (token.type != Token.Type.END) {
+            current = lexer.next();
+        }
+        return token;
+    }
+}
@@ -0,0 +1,156 @@
+package gradetracker.formula;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Arguments of one call of a FormulaFunction. A range or cell reference argument stands for the
+// numbers in its cells, as in spreadsheets: blank cells, text and formulas in error are left out.
+// Any other argument is a single number. Numbers come as primitive arrays, never boxed.
+public final class FunctionArguments {
+
+    private static final double[] NO_NUMBERS = new double[0];
+    // Each thread's buffer for gathering numbers, lent to one call at a time and kept at the
+    // largest size needed so far. A call evaluated while another is gathering (a function
+    // argument, or a formula cell read through a range) finds it lent out and uses its own.
+    private static final ThreadLocal<double[]> SPARE_BUFFERS = ThreadLocal.withInitial(() -> NO_NUMBERS);
+
+    private final String function;
+    private final Expr[] args;
+    private final EvaluationContext ctx;
+    private final int rowShift; // Rows every reference is moved down by, as in Expr.evaluate
+    private double[] buffer = NO_NUMBERS;
+    private boolean borrowed; // Whether buffer is the thread's spare, handed back by release
+    private int size;
+
+    FunctionArguments(String function, Expr[] args, EvaluationContext ctx, int rowShift) {
+        this.function = function;
+        this.args = args;
+        this.ctx = ctx;
+        this.rowShift = rowShift;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public int count() {
+        return args.length;
+    }
+
+    // Throws unless the call has between min and max arguments
+    public void requireCount(int min, int max) {
+        if (args.length < min || args.length > max) {
+            String expected = min == max ? String.valueOf(min)
+                    : max == Integer.MAX_VALUE ? "at least " + min : min + " to " + max;
+            throw error("expects " + expected + " arguments but got " + args.length);
+        }
+    }
+
+    // Whether the argument is a range or a cell reference rather than a computed value
+    public boolean isReference(int index) {
+        return args[index] instanceof Expr.Range || args[index] instanceof Expr.CellRef;
+    }
+
+    // Value of a single-value argument; a cell reference reads as its value (0 when blank)
+    public double number(int index) {
+        if (args[index] instanceof Expr.Range) {
+            throw error("argument " + (index + 1) + " must be a single value, not a range");
+        }
+        return args[index].evaluate(ctx, rowShift);
+    }
+
+    // Numbers of one argument, in row order within each column, as a new array the caller may
+    // change (e.g. sort). Functions that only read the numbers should use gather instead.
+    public double[] numbers(int index) {
+        int count = gather(index);
+        return Arrays.copyOf(buffer, count);
+    }
+
+    // Numbers of every argument, in argument order, as a new array; see gatherAll
+    public double[] allNumbers() {
+        int count = gatherAll();
+        return Arrays.copyOf(buffer, count);
+    }
+
+    // Gathers the numbers of one argument without copying them and returns how many there are.
+    // Read them with gathered until the next gather or gatherAll.
+    public int gather(int index) {
+        startGathering();
+        append(args[index]);
+        return size;
+    }
+
+    // As gather, for the numbers of every argument in argument order
+    public int gatherAll() {
+        startGathering();
+        for (Expr arg : args) {
+            append(arg);
+        }
+        return size;
+    }
+
+    // The i-th number gathered by the last gather or gatherAll
+    public double gathered(int i) {
+        return buffer[Objects.checkIndex(i, size)];
+    }
+
+    public FormulaException error(String message) {
+        return new FormulaException(function + " " + message);
+    }
+
+    // Hands the thread's buffer back once the function has returned
+    void release() {
+        if (borrowed) {
+            SPARE_BUFFERS.set(buffer);
+            borrowed = false;
+            buffer = NO_NUMBERS;
+        }
+    }
+
+    private void startGathering() {
+        size = 0;
+        if (!borrowed) {
+            double[] spare = SPARE_BUFFERS.get();
+            if (spare != null) {
+                SPARE_BUFFERS.set(null);
+                buffer = spare;
+                borrowed = true;
+            }
+        }
+    }
+
+    private void append(Expr arg) {
+        if (arg instanceof Expr.Range) {
+            Expr.Range range = (Expr.Range) arg;
+            appendRange(range.from, range.to);
+        } else if (arg instanceof Expr.CellRef) {
+            appendRange((Expr.CellRef) arg, (Expr.CellRef) arg);
+        } else {
+            ensureCapacity(1);
+            buffer[size++] = arg.evaluate(ctx, rowShift);
+        }
+    }
+
+    private void appendRange(Expr.CellRef from, Expr.CellRef to) {
+        int startCol = ctx.columnIndex(from.column);
+        int endCol = ctx.columnIndex(to.column);
+        if (startCol < 0 || endCol < 0) {
+            return;
+        }
+        int rowStart = Math.max(1, Math.min(from.row, to.row) + rowShift);
+        int rowEnd = Math.min(ctx.lastRow(), Math.max(from.row, to.row) + rowShift);
+        if (rowEnd < rowStart) {
+            return;
+        }
+        for (int col = Math.min(startCol, endCol); col <= Math.max(startCol, endCol); col++) {
+            ensureCapacity(rowEnd - rowStart + 1);
+            size += ctx.numbers(col, rowStart, rowEnd, buffer, size);
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(size + extra, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package gradetracker.formula;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Functions formulas can call besides SUM and AVERAGE, which the parser handles itself. Holds
+// the built-in MIN, MAX, COUNT, MEDIAN, STDEV, IF, ROUND and RANK plus whatever is registered
+// by the application or by FormulaFunction.Plugin implementations on the class path. Register
+// functions before loading a sheet: results already cached as errors are not recomputed.
+//
+// Thread-safe.
+public final class FunctionRegistry {
+
+    // Largest number of digits ROUND rounds to, either side of the decimal point
+    private static final int MAX_ROUND_DIGITS = 15;
+
+    private static final Map<String, FormulaFunction> FUNCTIONS = new ConcurrentHashMap<>();
+
+    static {
+        register("MIN", FunctionRegistry::min);
+        register("MAX", FunctionRegistry::max);
+        register("COUNT", FunctionRegistry::count);
+        register("MEDIAN", FunctionRegistry::median);
+        register("STDEV", FunctionRegistry::stdev);
+        register("IF", FunctionRegistry::ifFunction);
+        register("ROUND", FunctionRegistry::round);
+        register("RANK", FunctionRegistry::rank);
+        for (FormulaFunction.Plugin plugin : ServiceLoader.load(FormulaFunction.Plugin.class)) {
+            plugin.registerFunctions();
+        }
+    }
+
+    private FunctionRegistry() {
+    }
+
+    // Adds or replaces a function; names are case-insensitive like the rest of a formula
+    public static void register(String name, FormulaFunction function) {
+        String key = name.toUpperCase(Locale.ROOT);
+        if (key.equals("SUM") || key.equals("AVERAGE")) {
+            throw new IllegalArgumentException(key + " is built into the formula parser");
+        }
+        if (key.isEmpty() || !key.chars().allMatch(c -> c >= 'A' && c <= 'Z')) {
+            throw new IllegalArgumentException("Function names are letters only: " + name);
+        }
+        FUNCTIONS.put(key, function);
+    }
+
+    // The function registered under an upper-case name, or null
+    public static FormulaFunction lookup(String name) {
+        return FUNCTIONS.get(name);
+    }
+
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(new TreeSet<>(FUNCTIONS.keySet()));
+    }
+
+    // Smallest number; 0 when there are none, as in spreadsheets
+    private static double min(FunctionArguments args) {
+        args.requireCount(1, Integer.MAX_VALUE);
+        int count = args.gatherAll();
+        if (count == 0) {
+            return 0.0;
+        }
+        double min = args.gathered(0);
+        for (int i = 1; i < count; i++) {
+            min = Math.min(min, args.gathered(i));
+        }
+        return min;
+    }
+
+    private static double max(FunctionArguments args) {
+        args.requireCount(1, Integer.MAX_VALUE);
+        int count = args.gatherAll();
+        if (count == 0) {
+            return 0.0;
+        }
+        double max = args.gathered(0);
+        for (int i = 1; i < count; i++) {
+            max = Math.max(max, args.gathered(i));
+        }
+        return max;
+    }
+
+    // Number of numbers: marked cells in ranges plus every single-value argument
+    private static double count(FunctionArguments args) {
+        args.requireCount(1, Integer.MAX_VALUE);
+        return args.gatherAll();
+    }
+
+    // Sorts a copy of the numbers, as gathered ones are only lent to the call
+    private static double median(FunctionArguments args) {
+        args.requireCount(1, Integer.MAX_VALUE);
+        double[] numbers = args.allNumbers();
+        if (numbers.length == 0) {
+            throw args.error("has no numbers");
+        }
+        Arrays.sort(numbers);
+        int middle = numbers.length / 2;
+        return numbers.length % 2 == 1 ? numbers[middle] : (numbers[middle - 1] + numbers[middle]) / 2;
+    }
+
+    // Sample standard deviation (n - 1), as spreadsheets' STDEV
+    private static double stdev(FunctionArguments args) {
+        args.requireCount(1, Integer.MAX_VALUE);
+        int count = args.gatherAll();
+        if (count < 2) {
+            throw args.error("needs at least two numbers");
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += args.gathered(i);
+        }
+        double mean = sum / count;
+        double squares = 0;
+        for (int i = 0; i < count; i++) {
+            double deviation = args.gathered(i) - mean;
+            squares += deviation * deviation;
+        }
+        return Math.sqrt(squares / (count - 1));
+    }
+
+    // IF(condition, then, else): the condition holds when it is not 0; else defaults to 0.
+    // Only the branch taken is evaluated.
+    private static double ifFunction(FunctionArguments args) {
+        args.requireCount(2, 3);
+        if (args.number(0) != 0) {
+            return args.number(1);
+        }
+        return args.count() > 2 ? args.number(2) : 0.0;
+    }
+
+    // ROUND(value, digits): halves round away from zero; negative digits round to tens,
+    // hundreds and so on. Digits go from -MAX_ROUND_DIGITS to MAX_ROUND_DIGITS, as far as a
+    // double has digits to round.
+    private static double round(FunctionArguments args) {
+        args.requireCount(1, 2);
+        double value = args.number(0);
+        double digits = args.count() > 1 ? args.number(1) : 0;
+        if (!(Math.abs(digits) <= MAX_ROUND_DIGITS)) {
+            throw args.error("digits must be between -" + MAX_ROUND_DIGITS + " and " + MAX_ROUND_DIGITS
+                    + " but got " + digits);
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return value;
+        }
+        try {
+            return BigDecimal.valueOf(value).setScale((int) digits, RoundingMode.HALF_UP).doubleValue();
+        } catch (ArithmeticException e) {
+            throw args.error("cannot round " + value + ": " + e.getMessage());
+        }
+    }
+
+    // RANK(value, range, order): position of value among the range's numbers, highest first
+    // unless order is given and not 0; equal numbers share the best rank
+    private static double rank(FunctionArguments args) {
+        args.requireCount(2, 3);
+        double value = args.number(0);
+        boolean ascending = args.count() > 2 && args.number(2) != 0;
+        int count = args.gather(1);
+        int before = 0;
+        boolean found = false;
+        for (int i = 0; i < count; i++) {
+            double number = args.gathered(i);
+            if (number == value) {
+                found = true;
+            } else if (ascending ? number < value : number > value) {
+                before++;
+            }
+        }
+        if (!found) {
+            throw args.error("value " + value + " is not in the range");
+        }
+        return before + 1;
+    }
+}
@@ -0,0 +1,24 @@
+package gradetracker.formula;
+
+// A single lexical unit of a formula, produced by FormulaLexer.
+final class Token {
+
+    enum Type {
+        NUMBER, CELL, NAME, PLUS, MINUS, STAR, SLASH, PERCENT, LPAREN, RPAREN, COMMA, COLON, COMPARE, END
+    }
+
+    final Type type;
+    final String text; // Upper-cased source text of the token
+    final int position; // Offset of the token within the formula body
+
+    Token(Type type, String text, int position) {
+        this.type = type;
+        this.text = text;
+        this.position = position;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.END ? "end of formula" : "'" + text + "'";
+    }
+}
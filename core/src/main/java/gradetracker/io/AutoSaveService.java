@@ -0,0 +1,260 @@
+package gradetracker.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Persists the roster on a dedicated background thread as a snapshot file plus an append-only
+// journal of the edits made since that snapshot. Recording an edit costs one short line in the
+// journal regardless of roster size; once the journal grows past COMPACT_AFTER_RECORDS it is
+// folded into a new snapshot. The writer thread keeps its own copy of the roster with every
+// journalled edit applied, so folding never has to re-read the files or touch the UI thread.
+//
+// Snapshots are written to a temporary file and renamed over the target, and every journal
+// starts with the id (CRC-32 and length) of the snapshot it applies to. A crash at any point
+// therefore leaves either the old snapshot with its journal, or the new snapshot with a journal
+// that no longer matches it and is ignored.
+//
+// Problems the service works around are reported to a Listener rather than shown, so the
+// application decides how to tell the user.
+public class AutoSaveService implements AutoCloseable {
+
+    public interface Listener {
+        // Called by load() when the journal ends in a damaged record; only the edits before it
+        // were replayed
+        void journalDamaged(int editsReplayed);
+
+        // Called when changes could not be written, on the writer thread or by close(). A failed
+        // write is retried with a full snapshot on the next save or edit.
+        void saveFailed(IOException error);
+    }
+
+    private static final int COMPACT_AFTER_RECORDS = 1000;
+    private static final String NO_SNAPSHOT = "none";
+
+    private final Path target;
+    private final Path tempFile;
+    private final Path journalFile;
+    private final EditJournal journal;
+    private final Listener listener;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autosave-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Work handed over by the UI thread, guarded by this
+    private RosterSnapshot pendingSnapshot;
+    private List<RosterEdit> pendingEdits = new ArrayList<>();
+    private boolean pendingDelete;
+    private boolean drainScheduled;
+
+    // Writer thread only
+    private RosterState roster;
+    private String snapshotId = NO_SNAPSHOT;
+    private boolean snapshotNeeded; // The journal is missing edits, e.g. after a failed write
+
+    public AutoSaveService(Path target, Listener listener) {
+        this.target = target;
+        this.listener = listener;
+        this.tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        this.journalFile = target.resolveSibling(target.getFileName() + ".journal");
+        this.journal = new EditJournal(journalFile);
+    }
+
+    // Reads the saved snapshot and replays the journal recorded against it. Returns null if
+    // nothing has been saved yet.
+    public RosterSnapshot load() throws IOException {
+        RosterState state = null;
+        String id = NO_SNAPSHOT;
+        if (Files.exists(target)) {
+            try (CheckedInputStream in = new CheckedInputStream(Files.newInputStream(target), new CRC32());
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                RosterSnapshot snapshot = RosterSnapshot.readCsv(reader);
+                while (reader.read() >= 0) {
+                    // Consume any remainder so the checksum covers the whole file
+                }
+                state = snapshot != null ? RosterState.of(snapshot) : new RosterState();
+                id = snapshotId(in.getChecksum().getValue(), Files.size(target));
+            }
+        }
+        EditJournal.Contents journalled = EditJournal.read(journalFile, id);
+        List<RosterEdit> edits = journalled.edits;
+        if (journalled.damaged) {
+            listener.journalDamaged(edits.size());
+        }
+        if (state == null && edits.isEmpty()) {
+            return null;
+        }
+        if (state == null) {
+            state = new RosterState();
+        }
+        for (RosterEdit edit : edits) {
+            edit.applyTo(state);
+        }
+        RosterSnapshot loaded = state.toSnapshot();
+
+        // Later edits are journalled on top of what was loaded, so that a crash before the next
+        // snapshot never leaves less on disk than there was at startup
+        RosterState mirror = state;
+        String loadedId = id;
+        int replayed = edits.size();
+        writer.execute(() -> {
+            roster = mirror;
+            snapshotId = loadedId;
+            snapshotNeeded = replayed > 0; // The journal on disk is rewritten from scratch
+        });
+        return loaded;
+    }
+
+    // Queues a full snapshot and returns immediately. Edits recorded before it are superseded.
+    public synchronized void save(RosterSnapshot snapshot) {
+        pendingSnapshot = snapshot;
+        pendingEdits.clear();
+        scheduleDrain();
+    }
+
+    // Queues one edit for the journal and returns immediately.
+    public synchronized void record(RosterEdit edit) {
+        pendingEdits.add(edit);
+        scheduleDrain();
+    }
+
+    // Discards everything queued and deletes the saved files once in-flight writes have finished.
+    public synchronized void delete() {
+        pendingDelete = true;
+        pendingSnapshot = null;
+        pendingEdits.clear();
+        scheduleDrain();
+    }
+
+    // Finishes queued writes and stops the writer thread.
+    @Override
+    public void close() {
+        writer.execute(() -> {
+            try {
+                if (snapshotNeeded) {
+                    writeSnapshot();
+                }
+                journal.close();
+            } catch (IOException e) {
+                listener.saveFailed(e);
+            }
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                listener.saveFailed(new IOException("Auto-save did not finish in time"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled) {
+            drainScheduled = true;
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        RosterSnapshot snapshot;
+        List<RosterEdit> edits;
+        boolean delete;
+        synchronized (this) {
+            snapshot = pendingSnapshot;
+            edits = pendingEdits;
+            delete = pendingDelete;
+            pendingSnapshot = null;
+            pendingEdits = new ArrayList<>();
+            pendingDelete = false;
+            drainScheduled = false;
+        }
+
+        try {
+            if (delete) {
+                journal.delete();
+                Files.deleteIfExists(target);
+                roster = new RosterState();
+                snapshotId = NO_SNAPSHOT;
+                snapshotNeeded = false;
+            }
+            if (snapshot != null) {
+                roster = RosterState.of(snapshot);
+                writeSnapshot();
+            }
+            if (edits.isEmpty()) {
+                return;
+            }
+            if (roster == null) {
+                // Nothing was loaded or saved yet, so there is no snapshot to journal against
+                roster = new RosterState();
+                snapshotNeeded = true;
+            }
+            for (RosterEdit edit : edits) {
+                edit.applyTo(roster);
+            }
+            if (snapshotNeeded || journal.recordCount() + edits.size() >= COMPACT_AFTER_RECORDS) {
+                writeSnapshot(); // Fold the journal into a new snapshot
+                return;
+            }
+            if (!journal.isOpen()) {
+                journal.reset(snapshotId);
+            }
+            for (RosterEdit edit : edits) {
+                journal.append(edit);
+            }
+            journal.flush();
+        } catch (IOException e) {
+            listener.saveFailed(e);
+            snapshotNeeded = true; // Write everything out on the next attempt
+        }
+    }
+
+    // Writes the writer thread's roster as the new snapshot and starts an empty journal for it
+    private void writeSnapshot() throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The channel is closed by the try; the writer only needs flushing
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), StandardCharsets.UTF_8));
+            roster.writeCsv(out);
+            out.flush();
+            channel.force(true);
+        }
+        long length = Files.size(tempFile);
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        snapshotId = snapshotId(crc.getValue(), length);
+        snapshotNeeded = false;
+        journal.reset(snapshotId);
+    }
+
+    private static String snapshotId(long crc, long length) {
+        return Long.toHexString(crc) + ":" + length;
+    }
+}
@@ -0,0 +1,153 @@
+package gradetracker.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Streaming RFC 4180 tokenizer: reads one record at a time from a Reader without buffering the
+// whole input. Handles quoted fields (which may contain commas, line breaks and "" for a literal
+// quote), CRLF, LF or lone CR line endings, and a UTF-8 byte order mark at the start of the input.
+// Lenient where the RFC is strict: spaces before an opening quote are ignored, text after a closing
+// quote is kept, and an unterminated quoted field runs to the end of the input.
+public final class CsvReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long charsRead;
+    private boolean started;
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> record = new ArrayList<>();
+
+    public CsvReader(Reader in) {
+        this(in, ',');
+    }
+
+    // Fields separated by delimiter instead of commas, e.g. '\t' for tab-separated text
+    public CsvReader(Reader in, char delimiter) {
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+    // Cells copied from a spreadsheet: tab-separated if the text holds a tab, comma-separated
+    // otherwise. Rows are padded with empty fields to the widest one.
+    public static String[][] readBlock(String text) {
+        List<String[]> records = new ArrayList<>();
+        int width = 0;
+        try (CsvReader csv = new CsvReader(new StringReader(text), text.indexOf('\t') >= 0 ? '\t' : ',')) {
+            for (String[] record = csv.readRecord(); record != null; record = csv.readRecord()) {
+                records.add(record);
+                width = Math.max(width, record.length);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by a StringReader
+        }
+        String[][] block = new String[records.size()][];
+        for (int i = 0; i < block.length; i++) {
+            String[] record = records.get(i);
+            block[i] = Arrays.copyOf(record, width);
+            Arrays.fill(block[i], record.length, width, "");
+        }
+        return block;
+    }
+
+    // Next record, or null at the end of the input. A blank line is returned as one empty field.
+    public String[] readRecord() throws IOException {
+        if (!started) {
+            started = true;
+            if (peek() == '\uFEFF') {
+                position++;
+            }
+        }
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+
+        record.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    break; // Unterminated quote: keep what was read
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        position++;
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c < 0 || c == '\n') {
+                break;
+            } else if (c == '\r') {
+                if (peek() == '\n') {
+                    position++;
+                }
+                break;
+            } else if (c == delimiter) {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.toString().isBlank()) {
+                field.setLength(0); // Whitespace before an opening quote, as in "a, "b""
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        record.add(field.toString());
+        return record.toArray(new String[0]);
+    }
+
+    // Characters consumed so far, for progress reporting
+    public long charsRead() {
+        return charsRead - (limit - position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        charsRead += n;
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package gradetracker.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Append-only log of the RosterEdits made since the last roster snapshot was written. The first
+// line names the snapshot the journal belongs to, so a journal left behind by a crash after a
+// newer snapshot was written is recognised and ignored instead of being replayed twice.
+final class EditJournal implements Closeable {
+
+    private static final String HEADER_PREFIX = "#journal ";
+
+    private final Path file;
+    private Writer out;
+    private int recordCount;
+
+    EditJournal(Path file) {
+        this.file = file;
+    }
+
+    // Atomically replaces the journal with an empty one belonging to the given snapshot
+    void reset(String snapshotId) throws IOException {
+        close();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tempFile, List.of(HEADER_PREFIX + snapshotId), StandardCharsets.UTF_8);
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        recordCount = 0;
+    }
+
+    void append(RosterEdit edit) throws IOException {
+        out.write(edit.encode());
+        out.write('\n');
+        recordCount++;
+    }
+
+    // Hands appended records to the operating system, so they survive the application crashing
+    void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    boolean isOpen() {
+        return out != null;
+    }
+
+    int recordCount() {
+        return recordCount;
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            Writer writer = out;
+            out = null;
+            writer.close();
+        }
+    }
+
+    // Edits recorded against the given snapshot, in order. Empty if the journal does not exist or
+    // belongs to a different snapshot; reading stops at the first incomplete or corrupt record.
+    static Contents read(Path file, String snapshotId) throws IOException {
+        List<RosterEdit> edits = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return new Contents(edits, false);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null || !header.equals(HEADER_PREFIX + snapshotId)) {
+                return new Contents(edits, false);
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                RosterEdit edit = RosterEdit.decode(line);
+                if (edit == null) {
+                    return new Contents(edits, true);
+                }
+                edits.add(edit);
+            }
+        }
+        return new Contents(edits, false);
+    }
+
+    // What read() found: the edits before any damaged record, and whether records were dropped
+    static final class Contents {
+        final List<RosterEdit> edits;
+        final boolean damaged;
+
+        Contents(List<RosterEdit> edits, boolean damaged) {
+            this.edits = edits;
+            this.damaged = damaged;
+        }
+    }
+}
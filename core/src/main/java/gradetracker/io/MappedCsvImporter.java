@@ -0,0 +1,247 @@
+package gradetracker.io;
+
+import gradetracker.model.ColumnarRoster;
+import gradetracker.model.Marks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Bulk import for very large roster files. The file is memory-mapped and delimiters are found by
+// scanning the mapped bytes directly; plain decimal marks are parsed from those bytes straight into
+// a ColumnarRoster, so a typical mark cell allocates nothing. Only ROLL NO, NAME and non-numeric
+// subject cells become Strings. Accepts the same RFC 4180 layout as CsvReader and expects UTF-8.
+public final class MappedCsvImporter {
+
+    // Called every PROGRESS_INTERVAL rows; returning false cancels the import
+    public interface ProgressListener {
+        boolean progress(long bytesRead, long totalBytes, int rowsRead);
+    }
+
+    private static final int PROGRESS_INTERVAL = 4096;
+    // Records longer than this are not supported; files larger than this are mapped window by window
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final int END_OF_RECORD = '\n';
+    private static final int END_OF_INPUT = -1;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private long position;
+
+    // The field most recently read: its byte range, or its decoded text if it was quoted
+    private long fieldStart;
+    private long fieldEnd;
+    private String quotedField;
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+
+    private MappedCsvImporter(FileChannel channel, long windowSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    // Reads the file, or returns null if it lacks the subject/max marks header or the listener
+    // cancelled the import.
+    public static ColumnarRoster read(Path file, ProgressListener listener) throws IOException {
+        return read(file, listener, WINDOW_SIZE);
+    }
+
+    // As read, mapping at most windowSize bytes at a time, so tests can put window edges inside
+    // fields and records of small files
+    static ColumnarRoster read(Path file, ProgressListener listener, long windowSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedCsvImporter(channel, windowSize).read(listener);
+        }
+    }
+
+    private ColumnarRoster read(ProgressListener listener) throws IOException {
+        skipByteOrderMark();
+        List<String> subjects = readHeader();
+        List<String> maxMarks = readHeader();
+        if (subjects == null || maxMarks == null) {
+            return null;
+        }
+
+        ColumnarRoster roster = new ColumnarRoster(subjects, maxMarks);
+        int subjectCount = subjects.size();
+        while (position < size) {
+            // ROLL NO and NAME; records with fewer than two fields are skipped
+            int terminator = nextField();
+            String rollNo = fieldText();
+            if (terminator != ',') {
+                continue;
+            }
+            terminator = nextField();
+            int row = roster.addRow(rollNo, fieldText());
+
+            for (int subject = 0; terminator == ','; subject++) {
+                terminator = nextField();
+                if (subject < subjectCount) {
+                    readMark(roster, row, subject);
+                }
+            }
+
+            if (row % PROGRESS_INTERVAL == 0 && !listener.progress(position, size, roster.rowCount())) {
+                return null;
+            }
+        }
+        listener.progress(size, size, roster.rowCount());
+        return roster;
+    }
+
+    private List<String> readHeader() throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        int terminator;
+        do {
+            terminator = nextField();
+            fields.add(fieldText());
+        } while (terminator == ',');
+        return RosterSnapshot.headerValues(fields.toArray(new String[0]));
+    }
+
+    private void readMark(ColumnarRoster roster, int row, int subject) throws IOException {
+        if (quotedField != null) {
+            roster.setText(row, subject, quotedField);
+            return;
+        }
+        if (fieldStart == fieldEnd) {
+            return; // Blank
+        }
+
+        // Same rule as Marks.fractionDigits, applied to the mapped bytes
+        long p = fieldStart;
+        boolean negative = byteAt(p) == '-';
+        if (negative) {
+            p++;
+        }
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        boolean plain = p < fieldEnd;
+        for (; p < fieldEnd && plain; p++) {
+            int b = byteAt(p);
+            if (b >= '0' && b <= '9') {
+                digits = digits * 10 + (b - '0');
+                digitCount++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0 && digitCount > 0) {
+                fractionDigits = 0;
+            } else {
+                plain = false;
+            }
+        }
+        int integerDigits = fractionDigits < 0 ? digitCount : digitCount - fractionDigits;
+        long firstDigit = negative ? fieldStart + 1 : fieldStart;
+        plain = plain && digitCount <= Marks.MAX_DIGITS && fractionDigits != 0
+                && !(integerDigits > 1 && byteAt(firstDigit) == '0')
+                && !(fractionDigits > 0 && byteAt(fieldEnd - 1) == '0')
+                && !(negative && digits == 0);
+        if (!plain) {
+            roster.setText(row, subject, fieldText());
+            return;
+        }
+        int scale = Math.max(fractionDigits, 0);
+        double mark = Marks.scale(digits, scale);
+        roster.setMark(row, subject, negative ? -mark : mark, scale);
+    }
+
+    // Reads the next field and returns what ended it: ',', END_OF_RECORD or END_OF_INPUT
+    private int nextField() throws IOException {
+        quotedField = null;
+        long start = position;
+        while (position < size && byteAt(position) == ' ') {
+            position++; // Spaces before an opening quote are ignored, as in CsvReader
+        }
+        if (position < size && byteAt(position) == '"') {
+            readQuotedField();
+        } else {
+            position = start;
+        }
+        fieldStart = position;
+        while (position < size) {
+            int b = byteAt(position);
+            if (b == ',' || b == '\n' || b == '\r') {
+                break;
+            }
+            position++;
+        }
+        fieldEnd = position;
+        if (quotedField != null && fieldEnd > fieldStart) {
+            quotedField += decode(fieldStart, fieldEnd); // Text after the closing quote is kept
+        }
+
+        if (position >= size) {
+            return END_OF_INPUT;
+        }
+        int terminator = byteAt(position++);
+        if (terminator == '\r') {
+            if (position < size && byteAt(position) == '\n') {
+                position++;
+            }
+            return END_OF_RECORD;
+        }
+        return terminator == ',' ? ',' : END_OF_RECORD;
+    }
+
+    private void readQuotedField() throws IOException {
+        position++; // Opening quote
+        scratch.reset();
+        while (position < size) {
+            int b = byteAt(position++);
+            if (b == '"') {
+                if (position < size && byteAt(position) == '"') {
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            scratch.write(b);
+        }
+        quotedField = scratch.toString(StandardCharsets.UTF_8);
+    }
+
+    private String fieldText() throws IOException {
+        return quotedField != null ? quotedField : decode(fieldStart, fieldEnd);
+    }
+
+    private String decode(long start, long end) throws IOException {
+        byte[] bytes = new byte[(int) (end - start)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) byteAt(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        if (size >= 3 && byteAt(0) == 0xEF && byteAt(1) == 0xBB && byteAt(2) == 0xBF) {
+            position = 3;
+        }
+    }
+
+    // Unsigned byte at an absolute file offset. An offset outside the current window maps a new
+    // window starting there; since fields are only read back within the current record, that
+    // happens about once per WINDOW_SIZE bytes.
+    private int byteAt(long offset) throws IOException {
+        if (offset < windowStart || offset >= windowEnd) {
+            windowStart = offset;
+            windowEnd = Math.min(size, offset + windowSize);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+        }
+        return window.get((int) (offset - windowStart)) & 0xFF;
+    }
+}
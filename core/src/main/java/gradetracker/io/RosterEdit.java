@@ -0,0 +1,215 @@
+package gradetracker.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// One change to the roster, small enough to be appended to the edit journal as a single line.
+// Rows are 0-based positions in the table; columns are the table's data indices
+// (1 = ROLL NO, 2 = NAME, 3+ = subjects).
+public final class RosterEdit {
+
+    enum Type {
+        SET_CELL("S"), SET_CELLS("B"), INSERT_ROW("I"), DELETE_ROWS("D"), SET_SUBJECTS("H");
+
+        final String code;
+
+        Type(String code) {
+            this.code = code;
+        }
+    }
+
+    private final Type type;
+    private final int row;
+    // Column for SET_CELL and SET_CELLS, row count for DELETE_ROWS, subject count for SET_SUBJECTS
+    private final int column;
+    private final int width; // Columns of the block for SET_CELLS
+    // Cell value, block values row by row, inserted row, or the subjects followed by the max marks
+    private final String[] values;
+
+    private RosterEdit(Type type, int row, int column, String... values) {
+        this(type, row, column, 0, values);
+    }
+
+    private RosterEdit(Type type, int row, int column, int width, String... values) {
+        this.type = type;
+        this.row = row;
+        this.column = column;
+        this.width = width;
+        this.values = values;
+    }
+
+    public static RosterEdit setCell(int row, int column, String value) {
+        return new RosterEdit(Type.SET_CELL, row, column, value);
+    }
+
+    // A rectangular block of cells with its top left corner at row, column, such as a paste or a
+    // fill; one record, so a crash keeps either all of it or none
+    public static RosterEdit setCells(int row, int column, String[][] block) {
+        int width = block.length > 0 ? block[0].length : 0;
+        String[] values = new String[block.length * width];
+        for (int i = 0; i < block.length; i++) {
+            System.arraycopy(block[i], 0, values, i * width, width);
+        }
+        return new RosterEdit(Type.SET_CELLS, row, column, width, values);
+    }
+
+    // values holds ROLL NO, NAME and the subject values of the new row
+    public static RosterEdit insertRow(int row, String[] values) {
+        return new RosterEdit(Type.INSERT_ROW, row, 0, values.clone());
+    }
+
+    public static RosterEdit deleteRows(int row, int count) {
+        return new RosterEdit(Type.DELETE_ROWS, row, count);
+    }
+
+    // Each subject and max mark is a field of its own, so names may hold commas
+    public static RosterEdit setSubjects(List<String> subjects, List<String> maxMarks) {
+        String[] values = new String[subjects.size() + maxMarks.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i < subjects.size() ? subjects.get(i) : maxMarks.get(i - subjects.size());
+        }
+        return new RosterEdit(Type.SET_SUBJECTS, 0, subjects.size(), values);
+    }
+
+    void applyTo(RosterState roster) {
+        switch (type) {
+            case SET_CELL:
+                if (row >= 0 && row < roster.rows.size() && column >= 1 && column <= roster.width()) {
+                    roster.rows.get(row)[column - 1] = values[0];
+                }
+                break;
+            case SET_CELLS:
+                for (int i = 0; width > 0 && i < values.length; i++) {
+                    int cellRow = row + i / width;
+                    int cellColumn = column + i % width;
+                    if (cellRow >= 0 && cellRow < roster.rows.size()
+                            && cellColumn >= 1 && cellColumn <= roster.width()) {
+                        roster.rows.get(cellRow)[cellColumn - 1] = values[i];
+                    }
+                }
+                break;
+            case INSERT_ROW:
+                roster.rows.add(Math.max(0, Math.min(row, roster.rows.size())), roster.fitToWidth(values));
+                break;
+            case DELETE_ROWS:
+                for (int i = 0; i < column && row < roster.rows.size(); i++) {
+                    roster.rows.remove(row);
+                }
+                break;
+            case SET_SUBJECTS:
+                roster.setSubjects(new ArrayList<>(Arrays.asList(values).subList(0, column)),
+                        new ArrayList<>(Arrays.asList(values).subList(column, values.length)));
+                break;
+        }
+    }
+
+    // Tab-separated fields with backslash escapes, followed by a CRC of the line so that a record
+    // torn by a crash mid-append is recognised and ignored on replay.
+    String encode() {
+        StringBuilder line = new StringBuilder(type.code);
+        if (type != Type.SET_SUBJECTS) {
+            line.append('\t').append(row);
+        }
+        if (type == Type.SET_CELL || type == Type.SET_CELLS || type == Type.DELETE_ROWS
+                || type == Type.SET_SUBJECTS) {
+            line.append('\t').append(column);
+        }
+        if (type == Type.SET_CELLS) {
+            line.append('\t').append(width);
+        }
+        for (String value : values) {
+            line.append('\t');
+            escape(value != null ? value : "", line);
+        }
+        String content = line.toString();
+        return content + '\t' + Long.toHexString(checksum(content));
+    }
+
+    // Returns null if the line is incomplete or corrupt.
+    static RosterEdit decode(String line) {
+        int checksumStart = line.lastIndexOf('\t');
+        if (checksumStart < 0) {
+            return null;
+        }
+        String content = line.substring(0, checksumStart);
+        if (!Long.toHexString(checksum(content)).equals(line.substring(checksumStart + 1))) {
+            return null;
+        }
+        String[] fields = content.split("\t", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unescape(fields[i]);
+        }
+        try {
+            switch (fields[0]) {
+                case "S":
+                    return setCell(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), fields[3]);
+                case "B":
+                    return new RosterEdit(Type.SET_CELLS, Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                            Integer.parseInt(fields[3]), Arrays.copyOfRange(fields, 4, fields.length));
+                case "I":
+                    return insertRow(Integer.parseInt(fields[1]), Arrays.copyOfRange(fields, 2, fields.length));
+                case "D":
+                    return deleteRows(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                case "H":
+                    int subjectCount = Integer.parseInt(fields[1]);
+                    if (subjectCount < 0 || subjectCount > fields.length - 2) {
+                        return null;
+                    }
+                    return new RosterEdit(Type.SET_SUBJECTS, 0, subjectCount,
+                            Arrays.copyOfRange(fields, 2, fields.length));
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder out = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                out.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
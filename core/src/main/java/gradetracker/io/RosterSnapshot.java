@@ -0,0 +1,115 @@
+package gradetracker.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable copy of the roster taken on the UI thread, so it can be written out on another
+// thread while the table keeps changing. Each row holds ROLL NO, NAME and one value per subject.
+public final class RosterSnapshot {
+
+    private final List<String> subjects;
+    private final List<String> maxMarks;
+    private final List<String[]> rows;
+
+    // The row arrays are taken over as they are; callers must not modify them afterwards.
+    public RosterSnapshot(List<String> subjects, List<String> maxMarks, List<String[]> rows) {
+        this.subjects = Collections.unmodifiableList(new ArrayList<>(subjects));
+        this.maxMarks = Collections.unmodifiableList(new ArrayList<>(maxMarks));
+        this.rows = Collections.unmodifiableList(rows);
+    }
+
+    public List<String> getSubjects() {
+        return subjects;
+    }
+
+    public List<String> getMaxMarks() {
+        return maxMarks;
+    }
+
+    public List<String[]> getRows() {
+        return rows;
+    }
+
+    // Writes the roster in the tracker's CSV layout: a subjects line, a max marks line, then one
+    // line per student. Values containing commas, quotes or line breaks are quoted (RFC 4180).
+    public void writeCsv(Writer writer) throws IOException {
+        writeCsv(subjects, maxMarks, rows, writer);
+    }
+
+    static void writeCsv(List<String> subjects, List<String> maxMarks, List<String[]> rows, Writer writer)
+            throws IOException {
+        writeRecord(subjects.toArray(new String[0]), writer);
+        writeRecord(maxMarks.toArray(new String[0]), writer);
+        for (String[] row : rows) {
+            writeRecord(row, writer);
+        }
+    }
+
+    // One CSV line, quoted as writeCsv does
+    public static void writeRecord(String[] values, Writer writer) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.append(',');
+            }
+            String value = values[i] != null ? values[i] : "";
+            if (needsQuotes(value)) {
+                writer.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                writer.append(value);
+            }
+        }
+        writer.append('\n');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Reads the layout written by writeCsv. Returns null if the subjects or max marks header line
+    // is missing. Records with fewer than two fields are skipped.
+    public static RosterSnapshot readCsv(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        String[] subjectsRecord = csv.readRecord();
+        String[] maxMarksRecord = csv.readRecord();
+        if (subjectsRecord == null || maxMarksRecord == null) {
+            return null;
+        }
+
+        List<String[]> rows = new ArrayList<>();
+        String[] values;
+        while ((values = csv.readRecord()) != null) {
+            if (isStudentRecord(values)) {
+                rows.add(values);
+            }
+        }
+        return new RosterSnapshot(headerValues(subjectsRecord), headerValues(maxMarksRecord), rows);
+    }
+
+    // Same rule as the subject and max marks text fields: values are trimmed, and a blank line
+    // means no values at all
+    public static List<String> headerValues(String[] record) {
+        List<String> values = new ArrayList<>(record.length);
+        for (String value : record) {
+            values.add(value.trim());
+        }
+        if (values.size() == 1 && values.get(0).isEmpty()) {
+            values.clear();
+        }
+        return values;
+    }
+
+    // Student lines need at least ROLL NO and NAME; anything shorter is skipped on import
+    public static boolean isStudentRecord(String[] record) {
+        return record.length >= 2;
+    }
+}
@@ -0,0 +1,61 @@
+package gradetracker.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Mutable copy of the roster kept by the autosave writer thread. Journal records are applied to
+// it as they are written, so compacting the journal only means writing this state out.
+final class RosterState {
+
+    List<String> subjects = new ArrayList<>();
+    List<String> maxMarks = new ArrayList<>();
+    final List<String[]> rows = new ArrayList<>();
+
+    static RosterState of(RosterSnapshot snapshot) {
+        RosterState state = new RosterState();
+        state.subjects = new ArrayList<>(snapshot.getSubjects());
+        state.maxMarks = new ArrayList<>(snapshot.getMaxMarks());
+        for (String[] row : snapshot.getRows()) {
+            state.rows.add(state.fitToWidth(row));
+        }
+        return state;
+    }
+
+    // Number of stored values per row: ROLL NO, NAME and one per subject
+    int width() {
+        return 2 + subjects.size();
+    }
+
+    // Copy of a row padded with blanks (or truncated) to the current width
+    String[] fitToWidth(String[] values) {
+        String[] row = Arrays.copyOf(values, width());
+        for (int i = values.length; i < row.length; i++) {
+            row[i] = "";
+        }
+        return row;
+    }
+
+    // Redefines the subject columns; rows gain blank cells or lose trailing ones to match
+    void setSubjects(List<String> subjects, List<String> maxMarks) {
+        this.subjects = subjects;
+        this.maxMarks = maxMarks;
+        for (int i = 0; i < rows.size(); i++) {
+            rows.set(i, fitToWidth(rows.get(i)));
+        }
+    }
+
+    RosterSnapshot toSnapshot() {
+        List<String[]> copy = new ArrayList<>(rows.size());
+        for (String[] row : rows) {
+            copy.add(row.clone());
+        }
+        return new RosterSnapshot(subjects, maxMarks, copy);
+    }
+
+    void writeCsv(Writer writer) throws IOException {
+        RosterSnapshot.writeCsv(subjects, maxMarks, rows, writer);
+    }
+}
@@ -0,0 +1,121 @@
+package gradetracker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Roster held column by column in primitive arrays, as produced by MappedCsvImporter and copied
+// into a GradeStore without going through text. Plain decimal marks (see Marks) are stored as
+// doubles together with the number of fraction digits they were written with, so they print back
+// exactly as they appeared in the file. Anything else in a subject cell (formulas, text, unusual
+// number formats) is kept verbatim in a side table and reads as NaN, as do blank cells.
+public final class ColumnarRoster {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final List<String> subjects;
+    private final List<String> maxMarks;
+    private int rowCount;
+    private String[] rollNos = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private final double[][] marks; // [subject][row]
+    private final byte[][] fractionDigits; // [subject][row]
+    // Non-numeric subject cells, keyed by cellKey(row, subject)
+    private final Map<Long, String> textCells = new HashMap<>();
+
+    public ColumnarRoster(List<String> subjects, List<String> maxMarks) {
+        this.subjects = Collections.unmodifiableList(new ArrayList<>(subjects));
+        this.maxMarks = Collections.unmodifiableList(new ArrayList<>(maxMarks));
+        this.marks = new double[subjects.size()][INITIAL_CAPACITY];
+        this.fractionDigits = new byte[subjects.size()][INITIAL_CAPACITY];
+    }
+
+    public List<String> getSubjects() {
+        return subjects;
+    }
+
+    public List<String> getMaxMarks() {
+        return maxMarks;
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public String rollNo(int row) {
+        return rollNos[row];
+    }
+
+    public String name(int row) {
+        return names[row];
+    }
+
+    // Numeric mark, or NaN if the cell is blank or not a plain number
+    public double mark(int row, int subject) {
+        return marks[subject][row];
+    }
+
+    // Fraction digits the mark was written with; only meaningful if mark() is not NaN
+    public int fractionDigits(int row, int subject) {
+        return fractionDigits[subject][row];
+    }
+
+    // Cell text exactly as it appeared in the file
+    public String value(int row, int subject) {
+        double mark = marks[subject][row];
+        if (!Double.isNaN(mark)) {
+            return Marks.format(mark, fractionDigits[subject][row]);
+        }
+        String text = textCells.get(cellKey(row, subject));
+        return text != null ? text : "";
+    }
+
+    // ROLL NO, NAME and the subject values of a row, as used by RosterSnapshot
+    public String[] rowValues(int row) {
+        String[] values = new String[2 + subjects.size()];
+        values[0] = rollNos[row];
+        values[1] = names[row];
+        for (int i = 0; i < subjects.size(); i++) {
+            values[2 + i] = value(row, i);
+        }
+        return values;
+    }
+
+    // Starts a new row with every subject blank and returns its index
+    public int addRow(String rollNo, String name) {
+        if (rowCount == rollNos.length) {
+            int capacity = rowCount * 2;
+            rollNos = Arrays.copyOf(rollNos, capacity);
+            names = Arrays.copyOf(names, capacity);
+            for (int i = 0; i < marks.length; i++) {
+                marks[i] = Arrays.copyOf(marks[i], capacity);
+                fractionDigits[i] = Arrays.copyOf(fractionDigits[i], capacity);
+            }
+        }
+        int row = rowCount++;
+        rollNos[row] = rollNo;
+        names[row] = name;
+        for (double[] column : marks) {
+            column[row] = Double.NaN;
+        }
+        return row;
+    }
+
+    public void setMark(int row, int subject, double mark, int digits) {
+        marks[subject][row] = mark;
+        fractionDigits[subject][row] = (byte) digits;
+    }
+
+    public void setText(int row, int subject, String text) {
+        if (!text.isEmpty()) {
+            textCells.put(cellKey(row, subject), text);
+        }
+    }
+
+    private static long cellKey(int row, int subject) {
+        return ((long) row << 32) | (subject & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,346 @@
+package gradetracker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Column-oriented storage for the roster behind the table. Each student occupies a slot: ROLL NO
+// and NAME live in String arrays (repeated strings are shared), and every subject has a double[] of
+// marks indexed by slot. Plain decimal marks (see Marks) are stored as numbers with their number
+// of fraction digits; a per-subject bitmap flags the cells holding anything else (formulas, text),
+// whose text is kept in a side table. A blank cell is NaN with its bit clear.
+//
+// Columns use the table's data indices: 1 = ROLL NO, 2 = NAME, 3+ = subjects. Slots of removed
+// rows are reused. Not thread-safe: all calls are expected to come from the JavaFX application
+// thread.
+public class GradeStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int FIRST_SUBJECT_COLUMN = 3;
+    // Entries of the string pool; a power of two
+    private static final int POOL_SIZE = 4096;
+
+    private int capacity = INITIAL_CAPACITY;
+    private int slotCount; // Slots handed out so far, including released ones
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    private String[] rollNos = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private final List<double[]> marks = new ArrayList<>(); // Per subject, indexed by slot
+    private final List<byte[]> fractionDigits = new ArrayList<>();
+    private final List<long[]> textBits = new ArrayList<>(); // Set for cells held in textCells
+    private final Map<Long, String> textCells = new HashMap<>(); // Keyed by cellKey(slot, subject)
+    // Strings seen most recently, by hash: a repeated value is stored once without the pool
+    // keeping every value ever entered alive
+    private final String[] stringPool = new String[POOL_SIZE];
+    private int formulaCount; // Subject cells whose text is a formula
+
+    public GradeStore() {
+    }
+
+    // Independent copy of every cell. Slots are kept, so the source's StudentRows address the
+    // same students in the copy.
+    public GradeStore(GradeStore source) {
+        capacity = source.capacity;
+        slotCount = source.slotCount;
+        freeSlots = source.freeSlots.clone();
+        freeSlotCount = source.freeSlotCount;
+        rollNos = source.rollNos.clone();
+        names = source.names.clone();
+        for (int subject = 0; subject < source.marks.size(); subject++) {
+            marks.add(source.marks.get(subject).clone());
+            fractionDigits.add(source.fractionDigits.get(subject).clone());
+            textBits.add(source.textBits.get(subject).clone());
+        }
+        textCells.putAll(source.textCells);
+        formulaCount = source.formulaCount;
+    }
+
+    public int subjectCount() {
+        return marks.size();
+    }
+
+    // Adds blank subject columns or drops trailing ones (and their values)
+    public void setSubjectCount(int count) {
+        while (marks.size() < count) {
+            double[] column = new double[capacity];
+            Arrays.fill(column, Double.NaN);
+            marks.add(column);
+            fractionDigits.add(new byte[capacity]);
+            textBits.add(new long[bitmapLength(capacity)]);
+        }
+        while (marks.size() > count) {
+            int subject = marks.size() - 1;
+            long[] bits = textBits.get(subject);
+            if (hasAnyBit(bits)) {
+                textCells.entrySet().removeIf(cell -> {
+                    if ((int) (long) cell.getKey() != subject) {
+                        return false;
+                    }
+                    if (isFormula(cell.getValue())) {
+                        formulaCount--;
+                    }
+                    return true;
+                });
+            }
+            marks.remove(subject);
+            fractionDigits.remove(subject);
+            textBits.remove(subject);
+        }
+    }
+
+    // New row holding ROLL NO, NAME and subject values in that order; missing values are blank
+    // and values beyond the last subject are ignored.
+    public StudentRow addRow(String... values) {
+        int slot = allocateSlot();
+        for (int column = 1; column < FIRST_SUBJECT_COLUMN + marks.size(); column++) {
+            String value = column - 1 < values.length ? values[column - 1] : null;
+            set(slot, column, value != null ? value : "");
+        }
+        return new StudentRow(slot);
+    }
+
+    // New rows for rows [from, to) of an imported roster. Marks are copied column by column
+    // without going through text. Subjects are matched by position.
+    public List<StudentRow> addRows(ColumnarRoster roster, int from, int to) {
+        List<StudentRow> rows = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            int slot = allocateSlot();
+            rollNos[slot] = pooled(roster.rollNo(row));
+            names[slot] = pooled(roster.name(row));
+            rows.add(new StudentRow(slot));
+        }
+        int subjectCount = Math.min(marks.size(), roster.getSubjects().size());
+        for (int subject = 0; subject < subjectCount; subject++) {
+            double[] markColumn = marks.get(subject);
+            byte[] digitColumn = fractionDigits.get(subject);
+            for (int i = 0; i < rows.size(); i++) {
+                int slot = rows.get(i).slot;
+                int row = from + i;
+                double mark = roster.mark(row, subject);
+                if (Double.isNaN(mark)) {
+                    String text = roster.value(row, subject);
+                    if (!text.isEmpty()) {
+                        setText(slot, subject, text);
+                    }
+                } else {
+                    markColumn[slot] = mark;
+                    digitColumn[slot] = (byte) roster.fractionDigits(row, subject);
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Frees the row's slot for reuse. The row must no longer be shown or used afterwards.
+    public void release(StudentRow row) {
+        int slot = row.slot;
+        rollNos[slot] = null;
+        names[slot] = null;
+        for (int subject = 0; subject < marks.size(); subject++) {
+            clearCell(slot, subject);
+        }
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    // Cell text as entered; "" for blank cells and columns that don't exist
+    public String get(StudentRow row, int column) {
+        int slot = row.slot;
+        if (column == 1) {
+            return nonNull(rollNos[slot]);
+        }
+        if (column == 2) {
+            return nonNull(names[slot]);
+        }
+        int subject = column - FIRST_SUBJECT_COLUMN;
+        if (subject < 0 || subject >= marks.size()) {
+            return "";
+        }
+        double mark = marks.get(subject)[slot];
+        if (!Double.isNaN(mark)) {
+            return Marks.format(mark, fractionDigits.get(subject)[slot]);
+        }
+        if (isSet(textBits.get(subject), slot)) {
+            return textCells.get(cellKey(slot, subject));
+        }
+        return "";
+    }
+
+    public void set(StudentRow row, int column, String value) {
+        set(row.slot, column, value != null ? value : "");
+    }
+
+    // Mark of a subject cell holding a plain number; NaN for blanks, text, formulas and columns
+    // that don't exist. Reads the primitive column directly, without parsing.
+    public double mark(StudentRow row, int column) {
+        int subject = column - FIRST_SUBJECT_COLUMN;
+        if (subject < 0 || subject >= marks.size()) {
+            return Double.NaN;
+        }
+        return marks.get(subject)[row.slot];
+    }
+
+    // mark of rows [from, to) of the list for one column, into out[0..to - from). Reads the
+    // subject's primitive column directly instead of looking it up for every cell.
+    public void marks(List<StudentRow> rows, int from, int to, int column, double[] out) {
+        int subject = column - FIRST_SUBJECT_COLUMN;
+        if (subject < 0 || subject >= marks.size()) {
+            Arrays.fill(out, 0, to - from, Double.NaN);
+            return;
+        }
+        double[] markColumn = marks.get(subject);
+        for (int row = from; row < to; row++) {
+            out[row - from] = markColumn[rows.get(row).slot];
+        }
+    }
+
+    // Subject cells holding a formula, over all rows
+    public int formulaCount() {
+        return formulaCount;
+    }
+
+    // True if ROLL NO, NAME and all subject cells are blank or whitespace
+    public boolean isEmpty(StudentRow row) {
+        int slot = row.slot;
+        if (!isBlank(rollNos[slot]) || !isBlank(names[slot])) {
+            return false;
+        }
+        for (int subject = 0; subject < marks.size(); subject++) {
+            if (!Double.isNaN(marks.get(subject)[slot])) {
+                return false;
+            }
+            if (isSet(textBits.get(subject), slot) && !isBlank(textCells.get(cellKey(slot, subject)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ROLL NO, NAME and one value per subject
+    public String[] rowValues(StudentRow row) {
+        String[] values = new String[2 + marks.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(row, i + 1);
+        }
+        return values;
+    }
+
+    private void set(int slot, int column, String value) {
+        if (column == 1) {
+            rollNos[slot] = pooled(value);
+            return;
+        }
+        if (column == 2) {
+            names[slot] = pooled(value);
+            return;
+        }
+        int subject = column - FIRST_SUBJECT_COLUMN;
+        if (subject < 0 || subject >= marks.size()) {
+            return;
+        }
+        clearCell(slot, subject);
+        int digits = Marks.fractionDigits(value);
+        if (digits >= 0) {
+            marks.get(subject)[slot] = Double.parseDouble(value);
+            fractionDigits.get(subject)[slot] = (byte) digits;
+        } else if (!value.isEmpty()) {
+            setText(slot, subject, value);
+        }
+    }
+
+    private void setText(int slot, int subject, String text) {
+        textBits.get(subject)[slot >>> 6] |= 1L << slot;
+        textCells.put(cellKey(slot, subject), pooled(text));
+        if (isFormula(text)) {
+            formulaCount++;
+        }
+    }
+
+    private void clearCell(int slot, int subject) {
+        marks.get(subject)[slot] = Double.NaN;
+        long[] bits = textBits.get(subject);
+        if (isSet(bits, slot)) {
+            bits[slot >>> 6] &= ~(1L << slot);
+            if (isFormula(textCells.remove(cellKey(slot, subject)))) {
+                formulaCount--;
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == capacity) {
+            grow(capacity * 2);
+        }
+        return slotCount++;
+    }
+
+    private void grow(int newCapacity) {
+        rollNos = Arrays.copyOf(rollNos, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        for (int subject = 0; subject < marks.size(); subject++) {
+            double[] column = Arrays.copyOf(marks.get(subject), newCapacity);
+            Arrays.fill(column, capacity, newCapacity, Double.NaN);
+            marks.set(subject, column);
+            fractionDigits.set(subject, Arrays.copyOf(fractionDigits.get(subject), newCapacity));
+            textBits.set(subject, Arrays.copyOf(textBits.get(subject), bitmapLength(newCapacity)));
+        }
+        capacity = newCapacity;
+    }
+
+    private String pooled(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        int hash = value.hashCode();
+        int index = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+        String pooled = stringPool[index];
+        if (value.equals(pooled)) {
+            return pooled;
+        }
+        stringPool[index] = value;
+        return value;
+    }
+
+    private static int bitmapLength(int capacity) {
+        return (capacity + 63) >>> 6;
+    }
+
+    private static boolean isSet(long[] bits, int slot) {
+        return (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private static boolean hasAnyBit(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Same test as Formula.isFormula, which this package does not depend on
+    private static boolean isFormula(String text) {
+        return text != null && text.startsWith("=");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+
+    private static long cellKey(int slot, int subject) {
+        return ((long) slot << 32) | (subject & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,74 @@
+package gradetracker.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// How marks are stored as numbers without losing the text they were entered as. Only "plain"
+// decimals are stored numerically: an optional minus sign, no redundant leading or trailing
+// zeros and at most MAX_DIGITS digits, e.g. "90", "-0.25", "87.5". Such a value prints back
+// exactly from the double and its number of fraction digits; "007", "85.50" or "1e2" do not, so
+// they stay text.
+public final class Marks {
+
+    public static final int MAX_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+    private Marks() {
+    }
+
+    // Number of fraction digits if the text is a plain decimal, -1 otherwise
+    public static int fractionDigits(String text) {
+        int length = text.length();
+        int start = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        boolean nonZero = false;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitCount++;
+                nonZero |= c != '0';
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0 && digitCount > 0) {
+                fractionDigits = 0;
+            } else {
+                return -1;
+            }
+        }
+        int integerDigits = fractionDigits < 0 ? digitCount : digitCount - fractionDigits;
+        boolean plain = digitCount > 0 && digitCount <= MAX_DIGITS && fractionDigits != 0
+                && !(integerDigits > 1 && text.charAt(start) == '0')
+                && !(fractionDigits > 0 && text.charAt(length - 1) == '0')
+                && !(start == 1 && !nonZero);
+        return plain ? Math.max(fractionDigits, 0) : -1;
+    }
+
+    // Value of digits / 10^fractionDigits. Correctly rounded: both operands are exact doubles and
+    // IEEE division rounds once, so this equals Double.parseDouble of the same text.
+    public static double scale(long digits, int fractionDigits) {
+        return digits / POWERS_OF_TEN[fractionDigits];
+    }
+
+    // Inverse of scale for plain decimals: the scaled value rounds back to the digits it came from
+    public static String format(double mark, int fractionDigits) {
+        if (fractionDigits == 0) {
+            return Long.toString((long) mark);
+        }
+        return BigDecimal.valueOf(Math.round(mark * POWERS_OF_TEN[fractionDigits]), fractionDigits).toPlainString();
+    }
+
+    // Same text as String.format(Locale.US, "%.<fractionDigits>f", value), without parsing a
+    // format string and building a Formatter on every call. Like Formatter, it rounds half up
+    // from the shortest decimal that reads back as the double (Double.toString).
+    public static String formatFixed(double value, int fractionDigits) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return Double.toString(value);
+        }
+        String text = BigDecimal.valueOf(value).setScale(fractionDigits, RoundingMode.HALF_UP).toPlainString();
+        boolean negative = value < 0 || (value == 0 && 1 / value < 0);
+        return negative && text.charAt(0) != '-' ? "-" + text : text;
+    }
+}
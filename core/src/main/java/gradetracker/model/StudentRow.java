@@ -0,0 +1,12 @@
+package gradetracker.model;
+
+// Table item for one student. Holds no values itself, only the slot of its row in a GradeStore,
+// which stays the same however the row is moved or sorted.
+public final class StudentRow {
+
+    final int slot;
+
+    StudentRow(int slot) {
+        this.slot = slot;
+    }
+}
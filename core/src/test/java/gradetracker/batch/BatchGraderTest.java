@@ -0,0 +1,55 @@
+package gradetracker.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchGraderTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(String name) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, List.of("Maths", "100", "1,Ann,70"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void globsSkipGradedCopiesAndSummaries() throws IOException {
+        Path roster = write("term/a.csv");
+        Path upperCase = write("term/B.CSV");
+        write("term/a" + BatchGrader.GRADED_SUFFIX);
+        write("term/" + BatchGrader.SUMMARY_FILE);
+        write("term/notes.txt");
+
+        assertEquals(List.of(upperCase, roster), BatchGrader.findRosters(directory.resolve("term") + "/*"));
+        assertEquals(List.of(upperCase, roster), BatchGrader.findRosters(directory.resolve("term").toString()));
+    }
+
+    @Test
+    void gradesNothingWhenNothingMatched() throws IOException, InterruptedException {
+        Path output = directory.resolve("graded");
+        List<BatchGrader.FileSummary> summaries = new BatchGrader(output, 4).gradeAll(directory, List.of());
+        assertTrue(summaries.isEmpty());
+        assertEquals(1, Files.readAllLines(output.resolve(BatchGrader.SUMMARY_FILE)).size());
+    }
+
+    @Test
+    void gradesEveryMatchedRoster() throws IOException, InterruptedException {
+        Path roster = write("a.csv");
+        Path output = directory.resolve("graded");
+        List<BatchGrader.FileSummary> summaries = new BatchGrader(output, 2).gradeAll(directory, List.of(roster));
+        assertEquals(1, summaries.size());
+        assertEquals(1, summaries.get(0).getStudents());
+        assertTrue(Files.exists(output.resolve("a" + BatchGrader.GRADED_SUFFIX)));
+    }
+}
@@ -0,0 +1,70 @@
+package gradetracker.calc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+    @Test
+    void interpolatesBetweenTheNearestRanks() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : new double[] { 40, 10, 30, 20 }) {
+            sketch.add(value);
+        }
+        assertEquals(10, sketch.quantile(0));
+        assertEquals(25, sketch.quantile(0.5), 1e-9);
+        assertEquals(40, sketch.quantile(1));
+        assertEquals(17.5, sketch.quantile(0.25), 1e-9);
+    }
+
+    @Test
+    void isWithinHalfABucketOfTheValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(33.333);
+        assertEquals(33.333, sketch.quantile(0.5), 0.005);
+    }
+
+    @Test
+    void keepsValuesOutsideZeroToHundredExactly() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(-12.345);
+        sketch.add(50);
+        sketch.add(123.456);
+        assertEquals(-12.345, sketch.quantile(0));
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(123.456, sketch.quantile(1));
+    }
+
+    @Test
+    void removesValuesAddedBefore() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(10);
+        sketch.add(20);
+        sketch.add(150);
+        sketch.remove(150);
+        sketch.remove(10);
+        sketch.remove(99); // Never added
+        assertEquals(1, sketch.getCount());
+        assertEquals(20, sketch.quantile(0.5));
+        sketch.remove(20);
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+    }
+
+    @Test
+    void mergesCountsAndOutliers() {
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        left.add(10);
+        left.add(-5);
+        right.add(30);
+        right.add(-5);
+        right.add(200);
+        left.merge(right);
+        assertEquals(5, left.getCount());
+        assertEquals(-5, left.quantile(0.25));
+        assertEquals(10, left.quantile(0.5));
+        assertEquals(200, left.quantile(1));
+    }
+}
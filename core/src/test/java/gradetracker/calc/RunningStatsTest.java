@@ -0,0 +1,92 @@
+package gradetracker.calc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RunningStatsTest {
+
+    private static final double[] VALUES = { 72.5, 40, 98, 55.25, 61, 87, 33.5, 79 };
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+
+    private static double deviation(double[] values, int from, int to) {
+        double mean = mean(values, from, to);
+        double squares = 0;
+        for (int i = from; i < to; i++) {
+            squares += (values[i] - mean) * (values[i] - mean);
+        }
+        return Math.sqrt(squares / (to - from));
+    }
+
+    @Test
+    void matchesTwoPassFigures() {
+        RunningStats stats = new RunningStats();
+        for (double value : VALUES) {
+            stats.add(value);
+        }
+        assertEquals(VALUES.length, stats.getCount());
+        assertEquals(mean(VALUES, 0, VALUES.length), stats.getMean(), 1e-12);
+        assertEquals(deviation(VALUES, 0, VALUES.length), stats.getStandardDeviation(), 1e-12);
+    }
+
+    @Test
+    void removingValuesUndoesAddingThem() {
+        RunningStats stats = new RunningStats();
+        for (double value : VALUES) {
+            stats.add(value);
+        }
+        for (int i = 0; i < 3; i++) {
+            stats.remove(VALUES[i]);
+        }
+        assertEquals(VALUES.length - 3, stats.getCount());
+        assertEquals(mean(VALUES, 3, VALUES.length), stats.getMean(), 1e-9);
+        assertEquals(deviation(VALUES, 3, VALUES.length), stats.getStandardDeviation(), 1e-9);
+    }
+
+    @Test
+    void removingTheLastValueEmptiesIt() {
+        RunningStats stats = new RunningStats();
+        stats.add(5);
+        stats.remove(5);
+        assertEquals(0, stats.getCount());
+        assertTrue(Double.isNaN(stats.getMean()));
+        assertTrue(Double.isNaN(stats.getStandardDeviation()));
+        stats.add(7);
+        assertEquals(7, stats.getMean());
+        assertEquals(0, stats.getStandardDeviation());
+    }
+
+    @Test
+    void mergesIntoTheFiguresOfTheUnion() {
+        RunningStats left = new RunningStats();
+        RunningStats right = new RunningStats();
+        for (int i = 0; i < VALUES.length; i++) {
+            (i < 5 ? left : right).add(VALUES[i]);
+        }
+        left.merge(right);
+        assertEquals(VALUES.length, left.getCount());
+        assertEquals(mean(VALUES, 0, VALUES.length), left.getMean(), 1e-12);
+        assertEquals(deviation(VALUES, 0, VALUES.length), left.getStandardDeviation(), 1e-12);
+    }
+
+    @Test
+    void mergesWithEmptyStats() {
+        RunningStats empty = new RunningStats();
+        RunningStats stats = new RunningStats();
+        stats.add(2);
+        stats.add(4);
+        stats.merge(empty);
+        assertEquals(3, stats.getMean());
+        empty.merge(stats);
+        assertEquals(2, empty.getCount());
+        assertEquals(1, empty.getStandardDeviation());
+    }
+}
@@ -0,0 +1,227 @@
+package gradetracker.calc;
+
+import static gradetracker.calc.SheetCalculator.cellKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import gradetracker.formula.ColumnLetters;
+import gradetracker.formula.FormulaCache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SheetCalculatorTest {
+
+    // Rows of columns A to H, edited in place by the tests
+    private final String[][] cells = new String[6][9];
+
+    private final SheetModel model = new SheetModel() {
+        @Override
+        public int rowCount() {
+            return cells.length;
+        }
+
+        @Override
+        public String rawValue(int row, int column) {
+            if (row < 0 || row >= cells.length || column < 1 || column >= cells[row].length) {
+                return "";
+            }
+            return cells[row][column] == null ? "" : cells[row][column];
+        }
+
+        @Override
+        public double plainNumber(int row, int column) {
+            String raw = rawValue(row, column);
+            try {
+                return raw.startsWith("=") ? Double.NaN : Double.parseDouble(raw);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        public int columnIndex(String letters) {
+            int column = ColumnLetters.toIndex(letters);
+            return column < cells[0].length ? column : -1;
+        }
+    };
+
+    private final FormulaCache formulaCache = new FormulaCache(64);
+    private final SheetCalculator calculator = new SheetCalculator(model, formulaCache);
+
+    // Sets a cell by its letters, e.g. set("D1", "=C1*2")
+    private void set(String cell, String value) {
+        int split = cell.length() - 1;
+        while (Character.isDigit(cell.charAt(split - 1))) {
+            split--;
+        }
+        cells[Integer.parseInt(cell.substring(split)) - 1][ColumnLetters.toIndex(cell.substring(0, split))] = value;
+    }
+
+    private String display(String cell) {
+        int split = cell.length() - 1;
+        while (Character.isDigit(cell.charAt(split - 1))) {
+            split--;
+        }
+        return calculator.displayValue(Integer.parseInt(cell.substring(split)) - 1,
+                ColumnLetters.toIndex(cell.substring(0, split)));
+    }
+
+    @Test
+    void evaluatesChainsOfFormulas() {
+        set("C1", "10");
+        set("D1", "=C1*2");
+        set("E1", "=D1+C1");
+        set("F1", "=SUM(C1:E1)");
+        assertEquals("60.00", display("F1"));
+        assertEquals("30.00", display("E1"));
+        assertEquals(20, calculator.numericValue(0, 4));
+    }
+
+    @Test
+    void marksEveryCellOfACycle() {
+        set("C1", "=E1");
+        set("D1", "=C1+1");
+        set("E1", "=D1+1");
+        set("F1", "=C1+1");
+        set("G1", "=G1");
+        assertEquals("1.00", display("F1")); // Reads the cycle without being part of it
+        assertEquals("#CYCLE", display("C1"));
+        assertEquals("#CYCLE", display("D1"));
+        assertEquals("#CYCLE", display("E1"));
+        assertEquals("#CYCLE", display("G1"));
+        assertTrue(calculator.isError(0, 7));
+    }
+
+    @Test
+    void findsCyclesThroughRanges() {
+        set("C1", "1");
+        set("C2", "=SUM(C1:C3)");
+        assertEquals("#CYCLE", display("C2"));
+    }
+
+    @Test
+    void breakingACycleGivesValuesAgain() {
+        set("C1", "=D1");
+        set("D1", "=C1");
+        assertEquals("#CYCLE", display("D1"));
+        set("C1", "4");
+        calculator.cellChanged(0, 3);
+        assertEquals("4.00", display("D1"));
+    }
+
+    @Test
+    void reportsSyntaxErrors() {
+        set("C1", "=1+");
+        set("D1", "=C1+1");
+        assertEquals("Error", display("C1"));
+        assertEquals("1.00", display("D1"));
+    }
+
+    @Test
+    void dropsOnlyTheResultsThatReadTheEditedCell() {
+        set("C1", "1");
+        set("C2", "2");
+        set("D1", "=C1*10");
+        set("E1", "=D1+1");
+        set("D2", "=C2*10");
+        set("F1", "=SUM(C1:C3)");
+        set("F2", "=SUM(C4:C6)");
+        assertEquals("11.00", display("E1"));
+        assertEquals("20.00", display("D2"));
+        assertEquals("3.00", display("F1"));
+        assertEquals("0.00", display("F2"));
+
+        // C2 changes behind the calculator's back, so D2 keeps its stale result unless reached
+        set("C2", "5");
+        set("C1", "3");
+        Set<Long> affected = calculator.cellChanged(0, 3);
+
+        assertEquals(Set.of(cellKey(0, 3), cellKey(0, 4), cellKey(0, 5), cellKey(0, 6)), affected);
+        assertEquals("31.00", display("E1"));
+        assertEquals("8.00", display("F1"));
+        assertEquals("20.00", display("D2"));
+        assertEquals("0.00", display("F2"));
+    }
+
+    @Test
+    void followsEditedFormulasToTheirNewReferences() {
+        set("C1", "1");
+        set("C2", "2");
+        set("D1", "=C1");
+        assertEquals("1.00", display("D1"));
+        set("D1", "=C2");
+        calculator.cellChanged(0, 4);
+        assertEquals("2.00", display("D1"));
+        assertFalse(calculator.affectedCells(0, 3).contains(cellKey(0, 4)));
+        assertTrue(calculator.affectedCells(1, 3).contains(cellKey(0, 4)));
+    }
+
+    @Test
+    void reachesEveryRangeCoveringTheEditedRow() {
+        calculator.setMaxMarks(new double[] { 100, 100, 100, 100, 100, 100 });
+        String[] ranges = { "C1:C2", "C2:C5", "C4:C6", "C1:C6", "C3:D3", "C2:C5", "C0:C1", "C6:C9" };
+        for (int i = 0; i < ranges.length; i++) {
+            cells[i % 6][5 + i / 6] = "=SUM(" + ranges[i] + ")";
+        }
+        calculator.registerFormulas();
+        for (int row = 0; row < 6; row++) {
+            Set<Long> expected = new HashSet<>();
+            expected.add(cellKey(row, 3));
+            for (int i = 0; i < ranges.length; i++) {
+                String[] ends = ranges[i].split(":");
+                int from = Integer.parseInt(ends[0].substring(1)) - 1;
+                int to = Integer.parseInt(ends[1].substring(1)) - 1;
+                if (row >= from && row <= to) {
+                    expected.add(cellKey(i % 6, 5 + i / 6));
+                }
+            }
+            assertEquals(expected, calculator.affectedCells(row, 3), "row " + row);
+        }
+
+        set("E2", "=1"); // Was =SUM(C2:C5), as E6 still is
+        calculator.cellChanged(1, 5);
+        assertTrue(calculator.affectedCells(3, 3).contains(cellKey(5, 5)));
+        assertFalse(calculator.affectedCells(3, 3).contains(cellKey(1, 5)));
+    }
+
+    @Test
+    void registeredFormulasAreReachedBeforeBeingRead() {
+        calculator.setMaxMarks(new double[] { 100, 100, 100, 100, 100, 100 });
+        set("C3", "7");
+        set("H1", "=C3");
+        set("H2", "=SUM(C1:C4)");
+        assertEquals(Set.of(cellKey(2, 3)), calculator.affectedCells(2, 3));
+        calculator.registerFormulas();
+        assertEquals(Set.of(cellKey(2, 3), cellKey(0, 8), cellKey(1, 8)), calculator.affectedCells(2, 3));
+    }
+
+    @Test
+    void invalidateAllRereadsEveryFormula() {
+        set("C1", "1");
+        set("D1", "=C1+1");
+        assertEquals("2.00", display("D1"));
+        set("C1", "5");
+        assertEquals("2.00", display("D1"));
+        calculator.invalidateAll();
+        assertEquals("6.00", display("D1"));
+    }
+
+    @Test
+    void looksUpAFormulaAgainOnlyWhenItsTextChanges() {
+        set("C1", "1");
+        set("D1", "=C1+1");
+        assertEquals("2.00", display("D1"));
+        set("C1", "5");
+        calculator.cellChanged(0, 3);
+        assertEquals("6.00", display("D1"));
+        assertEquals(1, formulaCache.getMisses() + formulaCache.getHits());
+        set("D1", "=C1+2");
+        calculator.cellChanged(0, 4);
+        assertEquals("7.00", display("D1"));
+        assertEquals(2, formulaCache.getMisses() + formulaCache.getHits());
+    }
+}
@@ -0,0 +1,244 @@
+package gradetracker.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class EditHistoryTest {
+
+    // Roster of ROLL NO, NAME and one value per subject, changed by the tests and by replays
+    private final List<String[]> rows = new ArrayList<>();
+    private List<String> subjects = List.of("Maths");
+    private List<String> maxMarks = List.of("100");
+    private EditHistory history;
+
+    private final EditHistory.Target target = new EditHistory.Target() {
+        @Override
+        public void setCells(int row, int column, String[][] values) {
+            String[][] before = block(row, column, values.length, values[0].length);
+            for (int i = 0; i < values.length; i++) {
+                System.arraycopy(values[i], 0, rows.get(row + i), column - 1, values[i].length);
+            }
+            history.cellsChanged(row, column, before, values); // Ignored while replaying
+        }
+
+        @Override
+        public void insertRows(int position, List<String[]> inserted) {
+            for (int i = 0; i < inserted.size(); i++) {
+                rows.add(position + i, inserted.get(i).clone());
+            }
+        }
+
+        @Override
+        public List<String[]> removeRows(int position, int count) {
+            List<String[]> removed = new ArrayList<>(rows.subList(position, position + count));
+            rows.subList(position, position + count).clear();
+            return removed;
+        }
+
+        @Override
+        public void moveRows(int from, int[] newPositions) {
+            String[][] moved = new String[newPositions.length][];
+            for (int i = 0; i < newPositions.length; i++) {
+                moved[newPositions[i] - from] = rows.get(from + i);
+            }
+            for (int i = 0; i < moved.length; i++) {
+                rows.set(from + i, moved[i]);
+            }
+        }
+
+        @Override
+        public void setSubjects(List<String> newSubjects, List<String> newMaxMarks) {
+            subjects = newSubjects;
+            maxMarks = newMaxMarks;
+            for (int i = 0; i < rows.size(); i++) {
+                rows.set(i, Arrays.copyOf(rows.get(i), 2 + newSubjects.size()));
+                for (int j = 0; j < rows.get(i).length; j++) {
+                    if (rows.get(i)[j] == null) {
+                        rows.get(i)[j] = "";
+                    }
+                }
+            }
+        }
+    };
+
+    EditHistoryTest() {
+        history = new EditHistory(target, 1 << 20);
+        rows.add(new String[] { "1", "Ann", "70" });
+        rows.add(new String[] { "2", "Ben", "55" });
+        rows.add(new String[] { "3", "Cy", "90" });
+    }
+
+    private String[][] block(int row, int column, int height, int width) {
+        String[][] block = new String[height][width];
+        for (int i = 0; i < height; i++) {
+            System.arraycopy(rows.get(row + i), column - 1, block[i], 0, width);
+        }
+        return block;
+    }
+
+    // An edit as the application makes it: applied to the roster, then recorded
+    private void edit(int row, int column, String value) {
+        target.setCells(row, column, new String[][] { { value } });
+    }
+
+    private String value(int row, int column) {
+        return rows.get(row)[column - 1];
+    }
+
+    @Test
+    void packsValuesWithEscapes() {
+        List<String[]> values = List.of(new String[] { "a\\b", "c\0d", "" }, new String[] { null, "\\\0", "x" });
+        String packed = EditHistory.pack(values);
+        List<String[]> unpacked = EditHistory.unpack(packed, 3);
+        assertEquals(2, unpacked.size());
+        assertArrayEquals(new String[] { "a\\b", "c\0d", "" }, unpacked.get(0));
+        assertArrayEquals(new String[] { "", "\\\0", "x" }, unpacked.get(1));
+        assertTrue(EditHistory.unpack(EditHistory.pack(List.of()), 2).isEmpty());
+    }
+
+    @Test
+    void undoesAndRedoesCellEdits() {
+        edit(0, 3, "75");
+        edit(1, 2, "Benjamin");
+        assertTrue(history.undo());
+        assertEquals("Ben", value(1, 2));
+        assertTrue(history.undo());
+        assertEquals("70", value(0, 3));
+        assertFalse(history.undo());
+        assertTrue(history.redo());
+        assertEquals("75", value(0, 3));
+        assertTrue(history.canRedo());
+    }
+
+    @Test
+    void replaysAreNotRecorded() {
+        edit(0, 3, "75");
+        history.undo();
+        assertTrue(history.canRedo());
+        assertFalse(history.canUndo());
+        history.redo();
+        assertFalse(history.canRedo());
+        assertTrue(history.undo());
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    void aNewEditForgetsWhatWasUndone() {
+        edit(0, 3, "75");
+        history.undo();
+        edit(0, 3, "80");
+        assertFalse(history.canRedo());
+        history.undo();
+        assertEquals("70", value(0, 3));
+    }
+
+    @Test
+    void skipsEditsThatChangeNothing() {
+        edit(0, 3, "70");
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    void groupsChangesIntoOneStep() {
+        history.beginGroup();
+        edit(0, 3, "1");
+        history.beginGroup();
+        edit(1, 3, "2");
+        history.endGroup();
+        assertFalse(history.canUndo()); // Not until the outermost group ends
+        history.endGroup();
+        assertTrue(history.undo());
+        assertEquals("70", value(0, 3));
+        assertEquals("55", value(1, 3));
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    void cancelledGroupsAreForgotten() {
+        edit(2, 3, "91");
+        history.beginGroup();
+        edit(0, 3, "1");
+        history.cancelGroup();
+        history.undo();
+        assertEquals("90", value(2, 3));
+        assertEquals("1", value(0, 3));
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    void restoresRemovedAndInsertedRows() {
+        history.rowsRemoved(0, target.removeRows(0, 2));
+        rows.add(1, new String[] { "4", "Dee", "" });
+        history.rowsInserted(1, 1);
+        assertEquals(2, rows.size());
+
+        history.undo();
+        history.undo();
+        assertEquals(3, rows.size());
+        assertArrayEquals(new String[] { "1", "Ann", "70" }, rows.get(0));
+        assertArrayEquals(new String[] { "2", "Ben", "55" }, rows.get(1));
+
+        history.redo();
+        history.redo();
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[] { "4", "Dee", "" }, rows.get(1));
+    }
+
+    @Test
+    void putsMovedRowsBack() {
+        int[] newPositions = { 2, 0, 1 };
+        target.moveRows(0, newPositions);
+        history.rowsMoved(0, newPositions);
+        assertEquals("Ben", value(0, 2));
+        history.undo();
+        assertEquals("Ann", value(0, 2));
+        assertEquals("Ben", value(1, 2));
+        assertEquals("Cy", value(2, 2));
+    }
+
+    @Test
+    void restoresDroppedSubjectColumns() {
+        String[][] dropped = block(0, 3, rows.size(), 1);
+        List<String> oldSubjects = subjects;
+        List<String> oldMaxMarks = maxMarks;
+        target.setSubjects(List.of(), List.of());
+        history.subjectsChanged(oldSubjects, oldMaxMarks, List.of(), List.of(), dropped);
+        assertEquals(2, rows.get(0).length);
+        history.undo();
+        assertEquals(List.of("Maths"), subjects);
+        assertEquals("55", value(1, 3));
+    }
+
+    @Test
+    void forgetsTheOldestStepsBeyondTheBudget() {
+        history = new EditHistory(target, 600);
+        for (int i = 0; i < 20; i++) {
+            edit(0, 3, String.valueOf(i));
+        }
+        assertTrue(history.bytes() <= 600);
+        int steps = 0;
+        while (history.undo()) {
+            steps++;
+        }
+        assertTrue(steps > 1 && steps < 20, "kept " + steps + " steps");
+        assertEquals(String.valueOf(19 - steps), value(0, 3));
+    }
+
+    @Test
+    void keepsTheLatestStepHoweverLarge() {
+        history = new EditHistory(target, 1);
+        edit(0, 2, "x".repeat(1000));
+        assertTrue(history.bytes() > 1000);
+        assertTrue(history.undo());
+        assertEquals("Ann", value(0, 2));
+        assertTrue(history.redo());
+    }
+}
@@ -0,0 +1,49 @@
+package gradetracker.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ColumnLettersTest {
+
+    @Test
+    void convertsSingleLetters() {
+        assertEquals(1, ColumnLetters.toIndex("A"));
+        assertEquals(26, ColumnLetters.toIndex("Z"));
+        assertEquals("C", ColumnLetters.toLetters(3));
+    }
+
+    @Test
+    void carriesPastZ() {
+        assertEquals(27, ColumnLetters.toIndex("AA"));
+        assertEquals(52, ColumnLetters.toIndex("AZ"));
+        assertEquals(53, ColumnLetters.toIndex("BA"));
+        assertEquals(702, ColumnLetters.toIndex("ZZ"));
+        assertEquals(703, ColumnLetters.toIndex("AAA"));
+        assertEquals("AZ", ColumnLetters.toLetters(52));
+        assertEquals("ZZ", ColumnLetters.toLetters(702));
+        assertEquals("AAA", ColumnLetters.toLetters(703));
+    }
+
+    @Test
+    void roundTripsBeyondTheCachedLetters() {
+        for (int column = 1; column < 20_000; column++) {
+            assertEquals(column, ColumnLetters.toIndex(ColumnLetters.toLetters(column)));
+        }
+    }
+
+    @Test
+    void ignoresCase() {
+        assertEquals(ColumnLetters.toIndex("AB"), ColumnLetters.toIndex("ab"));
+    }
+
+    @Test
+    void rejectsWhatIsNotAColumn() {
+        assertEquals(-1, ColumnLetters.toIndex(""));
+        assertEquals(-1, ColumnLetters.toIndex("A1"));
+        assertEquals(-1, ColumnLetters.toIndex("@"));
+        assertEquals(-1, ColumnLetters.toIndex("ABCDEFG"));
+        assertThrows(IllegalArgumentException.class, () -> ColumnLetters.toLetters(0));
+    }
+}
@@ -0,0 +1,81 @@
+package gradetracker.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class FormulaCacheTest {
+
+    // Every cell holds its row number times ten
+    private static final EvaluationContext SHEET = new EvaluationContext() {
+        @Override
+        public int columnIndex(String letters) {
+            return ColumnLetters.toIndex(letters);
+        }
+
+        @Override
+        public double cellValue(int row, int column) {
+            return row * 10;
+        }
+    };
+
+    @Test
+    void normalizesSpacingCaseAndRowPosition() {
+        assertEquals(FormulaCache.normalize("=SUM(C2:C40)", 41), FormulaCache.normalize("= sum( c3 : c41 )", 42));
+        assertNotEquals(FormulaCache.normalize("=C1", 1), FormulaCache.normalize("=C1", 2));
+        assertNotEquals(FormulaCache.normalize("=1 2", 1), FormulaCache.normalize("=12", 1));
+    }
+
+    @Test
+    void sharesOneTreeDownAColumn() {
+        FormulaCache cache = new FormulaCache(10);
+        Formula first = cache.get("=C1+C2", 3);
+        Formula second = cache.get("=c2 + c3", 4);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(30, first.evaluate(SHEET));
+        assertEquals(50, second.evaluate(SHEET));
+        assertEquals("=c2 + c3", second.getSource());
+    }
+
+    @Test
+    void movesRangesAndFunctionArgumentsOfASharedTree() {
+        FormulaCache cache = new FormulaCache(10);
+        cache.get("=MAX(C4:C5)+SUM(C4:C5)+IF(C5>0, C5)", 6);
+        Formula down = cache.get("=MAX(C5:C6)+SUM(C5:C6)+IF(C6>0, C6)", 7);
+        Formula up = cache.get("=MAX(C0:C1)+SUM(C0:C1)+IF(C1>0, C1)", 2);
+        assertEquals(1, cache.size());
+        assertEquals(60 + 110 + 60, down.evaluate(SHEET));
+        assertEquals(10 + 10 + 10, up.evaluate(SHEET));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() {
+        FormulaCache cache = new FormulaCache(2);
+        cache.get("=1", 1);
+        cache.get("=2", 1);
+        cache.get("=1", 1);
+        cache.get("=3", 1);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.get("=1", 1);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void cachesBrokenFormulasToo() {
+        FormulaCache cache = new FormulaCache(10);
+        Formula broken = cache.get("=1+", 1);
+        assertFalse(broken.isValid());
+        assertFalse(cache.get("=1+", 1).isValid());
+        assertEquals(1, cache.getHits());
+        assertThrows(FormulaException.class, () -> broken.evaluate(SHEET));
+        assertThrows(IllegalArgumentException.class, () -> new FormulaCache(0));
+    }
+}
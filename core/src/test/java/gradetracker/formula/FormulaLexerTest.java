@@ -0,0 +1,69 @@
+package gradetracker.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class FormulaLexerTest {
+
+    private static List<String> tokens(String body) {
+        FormulaLexer lexer = new FormulaLexer(body);
+        List<String> tokens = new ArrayList<>();
+        for (Token token = lexer.next(); token.type != Token.Type.END; token = lexer.next()) {
+            tokens.add(token.type + ":" + token.text);
+        }
+        return tokens;
+    }
+
+    @Test
+    void upperCasesCellsAndNames() {
+        assertEquals(List.of("NAME:SUM", "LPAREN:(", "CELL:C2", "COLON::", "CELL:AB10", "RPAREN:)"),
+                tokens("sum( c2 : ab10 )"));
+    }
+
+    @Test
+    void upperCasesTheSameInEveryLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals(List.of("NAME:MIN", "LPAREN:(", "CELL:I1", "RPAREN:)"), tokens("min(i1)"));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+
+    @Test
+    void readsNumbersWithFractionsAndExponents() {
+        assertEquals(List.of("NUMBER:12", "NUMBER:0.5", "NUMBER:.5", "NUMBER:1e3", "NUMBER:2E-2"),
+                tokens("12 0.5 .5 1e3 2E-2"));
+    }
+
+    @Test
+    void leavesAnExponentWithoutDigitsToTheNextToken() {
+        assertEquals(List.of("NUMBER:1", "NAME:E"), tokens("1e"));
+    }
+
+    @Test
+    void readsComparisonOperators() {
+        assertEquals(List.of("COMPARE:=", "COMPARE:<>", "COMPARE:<", "COMPARE:<=", "COMPARE:>", "COMPARE:>="),
+                tokens("= <> < <= > >="));
+    }
+
+    @Test
+    void reportsPositionsWithinTheBody() {
+        FormulaLexer lexer = new FormulaLexer("  C1+ 2");
+        assertEquals(2, lexer.next().position);
+        assertEquals(4, lexer.next().position);
+        assertEquals(6, lexer.next().position);
+    }
+
+    @Test
+    void rejectsUnknownCharacters() {
+        assertThrows(FormulaException.class, () -> tokens("C1 & 2"));
+    }
+}
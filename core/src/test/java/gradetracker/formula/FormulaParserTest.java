@@ -0,0 +1,98 @@
+package gradetracker.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class FormulaParserTest {
+
+    // Column C holds 1, 2, 3 ... in rows 1 to 10; D holds 10 in every row
+    private static final EvaluationContext SHEET = new EvaluationContext() {
+        @Override
+        public int columnIndex(String letters) {
+            return ColumnLetters.toIndex(letters);
+        }
+
+        @Override
+        public double cellValue(int row, int column) {
+            if (row < 1 || row > 10) {
+                return 0;
+            }
+            return column == 3 ? row : column == 4 ? 10 : 0;
+        }
+    };
+
+    private static double evaluate(String text) {
+        return Formula.compile(text).evaluate(SHEET);
+    }
+
+    @Test
+    void followsOperatorPrecedence() {
+        assertEquals(14, evaluate("=2+3*4"));
+        assertEquals(20, evaluate("=(2+3)*4"));
+        assertEquals(1, evaluate("=7%3"));
+        assertEquals(-6, evaluate("=-2*3"));
+        assertEquals(5, evaluate("=+5"));
+        assertEquals(2, evaluate("=8/2/2"));
+    }
+
+    @Test
+    void readsCellReferences() {
+        assertEquals(13, evaluate("=C3+D1"));
+        assertEquals(0, evaluate("=C11"));
+    }
+
+    @Test
+    void sumsAndAveragesRanges() {
+        assertEquals(55, evaluate("=SUM(C1:C10)"));
+        assertEquals(6, evaluate("=sum(c3:c1)"));
+        assertEquals(66, evaluate("=SUM(C1:D1, C2:C10, 1)"));
+        assertEquals(5.5, evaluate("=AVERAGE(C1:C10)"));
+        assertEquals(0, evaluate("=AVERAGE()"));
+    }
+
+    @Test
+    void comparesToOneOrZero() {
+        assertEquals(1, evaluate("=C2<C3"));
+        assertEquals(0, evaluate("=C2>=C3"));
+        assertEquals(1, evaluate("=C2+1=C3"));
+        assertEquals(1, evaluate("=C2<>C3"));
+    }
+
+    @Test
+    void keepsSyntaxErrorsUntilEvaluated() {
+        for (String text : List.of("=1+", "=SUM(C1:C2", "=(1", "=C1 C2", "=SUM(C1:5)", "=C1:C2")) {
+            Formula formula = Formula.compile(text);
+            assertFalse(formula.isValid(), text);
+            assertThrows(FormulaException.class, () -> formula.evaluate(SHEET), text);
+        }
+    }
+
+    @Test
+    void rejectsRangesWhereOneValueIsExpected() {
+        Formula formula = Formula.compile("=IF(C1:C2, 1)");
+        assertTrue(formula.isValid());
+        assertThrows(FormulaException.class, () -> formula.evaluate(SHEET));
+    }
+
+    @Test
+    void reportsEveryReference() {
+        List<String> references = new ArrayList<>();
+        Formula.compile("=SUM(C1:D4)+C7*IF(D2>1, E3, 0)").forEachReference(
+                (fromColumn, fromRow, toColumn, toRow) -> references.add(fromColumn + fromRow + ":" + toColumn + toRow));
+        assertEquals(List.of("C1:D4", "C7:C7", "D2:D2", "E3:E3"), references);
+    }
+
+    @Test
+    void movesReferencesForFills() {
+        assertEquals("=sum(D3:D5)*2+ AB12", Formula.moved("=sum(C2:C4)*2+ AA11", 1, 1));
+        assertEquals("=#REF!+C1", Formula.moved("=C1+C2", -1, 0));
+        assertEquals("plain", Formula.moved("plain", 1, 1));
+    }
+}
@@ -0,0 +1,156 @@
+package gradetracker.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class FunctionRegistryTest {
+
+    // C1:C5 holds 4, blank, 1, 3, 2; D1 holds 100
+    private static final EvaluationContext SHEET = new EvaluationContext() {
+        private final double[] column = { 4, Double.NaN, 1, 3, 2 };
+
+        @Override
+        public int columnIndex(String letters) {
+            return ColumnLetters.toIndex(letters);
+        }
+
+        @Override
+        public double cellValue(int row, int column) {
+            if (column == 4 && row == 1) {
+                return 100;
+            }
+            if (column != 3 || row < 1 || row > this.column.length) {
+                return 0;
+            }
+            double value = this.column[row - 1];
+            return Double.isNaN(value) ? 0 : value;
+        }
+
+        @Override
+        public int lastRow() {
+            return column.length;
+        }
+
+        @Override
+        public int numbers(int column, int fromRow, int toRow, double[] out, int offset) {
+            int written = 0;
+            for (int row = fromRow; row <= toRow; row++) {
+                if (column == 3 && !Double.isNaN(this.column[row - 1])) {
+                    out[offset + written++] = this.column[row - 1];
+                } else if (column == 4 && row == 1) {
+                    out[offset + written++] = 100;
+                }
+            }
+            return written;
+        }
+    };
+
+    private static double evaluate(String text) {
+        return Formula.compile(text).evaluate(SHEET);
+    }
+
+    @Test
+    void aggregatesSkipBlankCells() {
+        assertEquals(1, evaluate("=MIN(C1:C5)"));
+        assertEquals(100, evaluate("=MAX(C1:C5, D1)"));
+        assertEquals(4, evaluate("=COUNT(C1:C5)"));
+        assertEquals(2.5, evaluate("=MEDIAN(C1:C5)"));
+        assertEquals(Math.sqrt(5.0 / 3), evaluate("=STDEV(C1:C5)"), 1e-12);
+        assertEquals(0, evaluate("=MIN(C10:C20)"));
+    }
+
+    @Test
+    void nestedCallsKeepTheirOwnNumbers() {
+        assertEquals(100, evaluate("=MAX(C1:C5, MIN(C3:C5)*100)"));
+        assertEquals(5, evaluate("=COUNT(C1:C5, MEDIAN(C1:C5, RANK(3, C1:C5)))"));
+        assertEquals(2.5, evaluate("=MEDIAN(C1:C5, STDEV(C1:C5), MAX(D1, C1:C5))"));
+        assertEquals(4, evaluate("=RANK(MIN(C1:C5), C1:C5)"));
+    }
+
+    @Test
+    void lendsGatheredNumbersUntilTheNextGather() {
+        FunctionRegistry.register("gatheredlast", args -> {
+            int count = args.gather(0);
+            double last = args.gathered(count - 1);
+            assertEquals(5, args.gatherAll());
+            assertEquals(100, args.gathered(4));
+            assertThrows(IndexOutOfBoundsException.class, () -> args.gathered(5));
+            return last;
+        });
+        assertEquals(2, evaluate("=GATHEREDLAST(C1:C5, D1)"));
+    }
+
+    @Test
+    void ifEvaluatesOnlyTheBranchTaken() {
+        assertEquals(1, evaluate("=IF(C1>3, 1, 1/0)"));
+        assertEquals(0, evaluate("=IF(C1<3, 1)"));
+        assertEquals(2, evaluate("=IF(C1<3, 1, MIN(C4:C5))"));
+    }
+
+    @Test
+    void roundsHalvesAwayFromZero() {
+        assertEquals(2.35, evaluate("=ROUND(2.345, 2)"));
+        assertEquals(-3, evaluate("=ROUND(-2.5)"));
+        assertEquals(1200, evaluate("=ROUND(1249, -2)"));
+        assertEquals(0.5, evaluate("=ROUND(0.5, 15)"));
+        assertEquals(0, evaluate("=ROUND(12, -15)"));
+    }
+
+    @Test
+    void rejectsRoundingDigitsOutOfRange() {
+        assertThrows(FormulaException.class, () -> evaluate("=ROUND(1.5, 16)"));
+        assertThrows(FormulaException.class, () -> evaluate("=ROUND(1.5, -16)"));
+        assertThrows(FormulaException.class, () -> evaluate("=ROUND(1.5, 1E10)"));
+        assertThrows(FormulaException.class, () -> evaluate("=ROUND(1.5, 1/0)"));
+        assertThrows(FormulaException.class, () -> evaluate("=ROUND(1.5, 0/0)"));
+    }
+
+    @Test
+    void ranksHighestFirstUnlessAscending() {
+        assertEquals(1, evaluate("=RANK(4, C1:C5)"));
+        assertEquals(4, evaluate("=RANK(1, C1:C5)"));
+        assertEquals(1, evaluate("=RANK(1, C1:C5, 1)"));
+        assertThrows(FormulaException.class, () -> evaluate("=RANK(7, C1:C5)"));
+    }
+
+    @Test
+    void reportsWrongArgumentCounts() {
+        FormulaException error = assertThrows(FormulaException.class, () -> evaluate("=ROUND(1, 2, 3)"));
+        assertEquals("ROUND expects 1 to 2 arguments but got 3", error.getMessage());
+        assertThrows(FormulaException.class, () -> evaluate("=MIN()"));
+        assertThrows(FormulaException.class, () -> evaluate("=NOSUCHFUNCTION(1)"));
+    }
+
+    @Test
+    void registersFunctionsByName() {
+        FunctionRegistry.register("twice", args -> {
+            args.requireCount(1, 1);
+            return 2 * args.number(0);
+        });
+        assertEquals(8, evaluate("=Twice(C1)"));
+        assertTrue(FunctionRegistry.names().contains("TWICE"));
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.register("SUM", args -> 0));
+        assertThrows(IllegalArgumentException.class, () -> FunctionRegistry.register("F1", args -> 0));
+    }
+
+    @Test
+    void registersNamesTheSameInEveryLocale() {
+        Locale saved = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            FunctionRegistry.register("triple", args -> {
+                args.requireCount(1, 1);
+                return 3 * args.number(0);
+            });
+        } finally {
+            Locale.setDefault(saved);
+        }
+        assertTrue(FunctionRegistry.names().contains("TRIPLE"));
+        assertEquals(12, evaluate("=TRIPLE(C1)"));
+    }
+}
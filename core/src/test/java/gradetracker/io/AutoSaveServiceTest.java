@@ -0,0 +1,174 @@
+package gradetracker.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AutoSaveServiceTest {
+
+    @TempDir
+    Path directory;
+
+    // What the service reported, e.g. "damaged after 2"
+    private final List<String> problems = new ArrayList<>();
+
+    private final AutoSaveService.Listener listener = new AutoSaveService.Listener() {
+        @Override
+        public void journalDamaged(int editsReplayed) {
+            problems.add("damaged after " + editsReplayed);
+        }
+
+        @Override
+        public void saveFailed(IOException error) {
+            problems.add("failed: " + error.getMessage());
+        }
+    };
+
+    @AfterEach
+    void reportsNoUnexpectedProblems() {
+        assertEquals(List.of(), problems);
+    }
+
+    private Path target() {
+        return directory.resolve("grades_autosave.csv");
+    }
+
+    private Path journal() {
+        return directory.resolve("grades_autosave.csv.journal");
+    }
+
+    private static RosterSnapshot roster() {
+        List<String[]> rows = new ArrayList<>();
+        rows.add(new String[] { "1", "Ann", "70", "65" });
+        rows.add(new String[] { "2", "Ben", "55", "=C2+1" });
+        return new RosterSnapshot(List.of("Maths", "Art"), List.of("100", "100"), rows);
+    }
+
+    private RosterSnapshot reload() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        try {
+            return service.load();
+        } finally {
+            service.close();
+        }
+    }
+
+    @Test
+    void loadsNothingBeforeTheFirstSave() throws IOException {
+        assertNull(reload());
+    }
+
+    @Test
+    void journalsEditsOnTopOfTheSnapshot() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        service.record(RosterEdit.setCell(0, 3, "72"));
+        service.record(RosterEdit.insertRow(2, new String[] { "3", "Cy" }));
+        service.record(RosterEdit.deleteRows(1, 1));
+        service.close();
+        assertEquals(4, Files.readAllLines(journal(), StandardCharsets.UTF_8).size());
+
+        RosterSnapshot loaded = reload();
+        assertEquals(List.of("Maths", "Art"), loaded.getSubjects());
+        assertEquals(2, loaded.getRows().size());
+        assertArrayEquals(new String[] { "1", "Ann", "72", "65" }, loaded.getRows().get(0));
+        assertArrayEquals(new String[] { "3", "Cy", "", "" }, loaded.getRows().get(1));
+    }
+
+    @Test
+    void foldsALongJournalIntoANewSnapshot() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        for (int i = 0; i < 1500; i++) {
+            service.record(RosterEdit.setCell(i % 2, 3, String.valueOf(i)));
+        }
+        service.close();
+        assertTrue(Files.readAllLines(journal(), StandardCharsets.UTF_8).size() <= 1000);
+
+        RosterSnapshot loaded = reload();
+        assertEquals("1498", loaded.getRows().get(0)[2]);
+        assertEquals("1499", loaded.getRows().get(1)[2]);
+    }
+
+    @Test
+    void rewritesTheSnapshotAfterReplayingAJournal() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        service.record(RosterEdit.setSubjects(List.of("Maths"), List.of("50")));
+        service.close();
+        assertEquals(2, Files.readAllLines(journal(), StandardCharsets.UTF_8).size());
+
+        AutoSaveService reopened = new AutoSaveService(target(), listener);
+        assertEquals(List.of("50"), reopened.load().getMaxMarks());
+        reopened.close();
+        assertEquals(1, Files.readAllLines(journal(), StandardCharsets.UTF_8).size());
+        assertEquals(List.of("Maths"), reload().getSubjects());
+    }
+
+    @Test
+    void writesUtf8WhateverThePlatformCharset() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        service.record(RosterEdit.setCell(0, 2, "Zoë Åström"));
+        service.close();
+        assertEquals("Zoë Åström", reload().getRows().get(0)[1]);
+
+        service = new AutoSaveService(target(), listener);
+        service.load();
+        service.close(); // Folds the replayed journal into the snapshot
+        assertTrue(Files.readString(target(), StandardCharsets.UTF_8).contains("Zoë Åström"));
+    }
+
+    @Test
+    void deleteRemovesTheSavedFiles() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        service.record(RosterEdit.setCell(0, 3, "72"));
+        service.delete();
+        service.close();
+        assertFalse(Files.exists(target()));
+        assertFalse(Files.exists(journal()));
+        assertNull(reload());
+    }
+
+    @Test
+    void reportsADamagedJournalAndKeepsTheEditsBeforeIt() throws IOException {
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        service.record(RosterEdit.setCell(0, 2, "Anna"));
+        service.record(RosterEdit.setCell(0, 3, "72"));
+        service.close();
+        List<String> lines = Files.readAllLines(journal(), StandardCharsets.UTF_8);
+        lines.set(2, lines.get(2).replace("72", "73")); // The CRC no longer matches
+        Files.write(journal(), lines, StandardCharsets.UTF_8);
+
+        RosterSnapshot loaded = reload();
+        assertEquals(List.of("damaged after 1"), problems);
+        assertArrayEquals(new String[] { "1", "Anna", "70", "65" }, loaded.getRows().get(0));
+        problems.clear();
+    }
+
+    @Test
+    void reportsWritesThatFail() throws IOException {
+        Files.createDirectories(directory.resolve("grades_autosave.csv.tmp")); // The snapshot cannot be written
+        AutoSaveService service = new AutoSaveService(target(), listener);
+        service.save(roster());
+        service.close();
+        assertFalse(problems.isEmpty());
+        assertTrue(problems.get(0).startsWith("failed: "), problems.get(0));
+        problems.clear();
+    }
+}
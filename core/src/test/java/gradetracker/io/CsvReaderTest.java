@@ -0,0 +1,121 @@
+package gradetracker.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CsvReaderTest {
+
+    private static List<String[]> records(Reader reader, char delimiter) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        try (CsvReader csv = new CsvReader(reader, delimiter)) {
+            for (String[] record = csv.readRecord(); record != null; record = csv.readRecord()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private static List<String[]> records(String text) throws IOException {
+        return records(new StringReader(text), ',');
+    }
+
+    private static void assertRecords(List<String[]> records, String[]... expected) {
+        assertEquals(expected.length, records.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], records.get(i), "record " + i);
+        }
+    }
+
+    @Test
+    void splitsRecordsOnEveryLineEnding() throws IOException {
+        assertRecords(records("a,b\r\nc,d\ne,f\rg,h"),
+                new String[] { "a", "b" }, new String[] { "c", "d" }, new String[] { "e", "f" },
+                new String[] { "g", "h" });
+    }
+
+    @Test
+    void readsQuotedFields() throws IOException {
+        assertRecords(records("\"a,b\",\"line\r\nbreak\",\"say \"\"hi\"\"\",\"\"\n"),
+                new String[] { "a,b", "line\r\nbreak", "say \"hi\"", "" });
+    }
+
+    @Test
+    void keepsEmptyFieldsAndBlankLines() throws IOException {
+        assertRecords(records(",a,\n\nb"),
+                new String[] { "", "a", "" }, new String[] { "" }, new String[] { "b" });
+    }
+
+    @Test
+    void doesNotReturnARecordAfterTheFinalLineBreak() throws IOException {
+        assertRecords(records("a\r\n"), new String[] { "a" });
+        assertRecords(records(""));
+    }
+
+    @Test
+    void skipsTheByteOrderMarkOnlyAtTheStart() throws IOException {
+        assertRecords(records("﻿a,b\n﻿c"), new String[] { "a", "b" }, new String[] { "﻿c" });
+    }
+
+    @Test
+    void isLenientAroundQuotes() throws IOException {
+        assertRecords(records("a, \"b\",\"c\"d,x\"y\""), new String[] { "a", "b", "cd", "x\"y\"" });
+        assertRecords(records("\"open,\nto the end"), new String[] { "open,\nto the end" });
+    }
+
+    @Test
+    void splitsOnAnotherDelimiter() throws IOException {
+        assertRecords(records(new StringReader("a\tb,c\t\"d\te\""), '\t'), new String[] { "a", "b,c", "d\te" });
+    }
+
+    @Test
+    void readsTheSameRecordsOneCharacterAtATime() throws IOException {
+        String text = "﻿\"a\"\"b\",c\r\n\"d\r\ne\",f\r\rg";
+        Reader trickle = new Reader() {
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position == text.length()) {
+                    return -1;
+                }
+                buffer[offset] = text.charAt(position++);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        assertRecords(records(trickle, ','),
+                new String[] { "a\"b", "c" }, new String[] { "d\r\ne", "f" }, new String[] { "" },
+                new String[] { "g" });
+    }
+
+    @Test
+    void countsTheCharactersConsumed() throws IOException {
+        try (CsvReader csv = new CsvReader(new StringReader("ab,c\ndef\n"))) {
+            assertEquals(0, csv.charsRead());
+            csv.readRecord();
+            assertEquals(5, csv.charsRead());
+            csv.readRecord();
+            assertEquals(9, csv.charsRead());
+        }
+    }
+
+    @Test
+    void padsPastedBlocksToTheWidestRow() {
+        String[][] block = CsvReader.readBlock("1\t2\t3\n4\n");
+        assertArrayEquals(new String[] { "1", "2", "3" }, block[0]);
+        assertArrayEquals(new String[] { "4", "", "" }, block[1]);
+        assertEquals(2, block.length);
+        assertArrayEquals(new String[] { "a", "b" }, CsvReader.readBlock("a,b")[0]);
+    }
+}
@@ -0,0 +1,124 @@
+package gradetracker.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EditJournalTest {
+
+    private static final List<RosterEdit> EDITS = List.of(
+            RosterEdit.insertRow(0, new String[] { "1", "Ann", "70" }),
+            RosterEdit.insertRow(1, new String[] { "2", "Tab\there\\and\nbreak", "=C1*2" }),
+            RosterEdit.setCell(0, 3, "75"),
+            RosterEdit.setCells(0, 2, new String[][] { { "Anna", "80" }, { "Ben", "" } }),
+            RosterEdit.insertRow(2, new String[] { "3", "Cy", "9" }),
+            RosterEdit.deleteRows(2, 1));
+
+    @TempDir
+    Path directory;
+
+    private Path writeJournal(String snapshotId) throws IOException {
+        Path file = directory.resolve("roster.csv.journal");
+        try (EditJournal journal = new EditJournal(file)) {
+            journal.reset(snapshotId);
+            for (RosterEdit edit : EDITS) {
+                journal.append(edit);
+            }
+            assertEquals(EDITS.size(), journal.recordCount());
+        }
+        return file;
+    }
+
+    private static RosterState replay(List<RosterEdit> edits) {
+        RosterState state = new RosterState();
+        state.setSubjects(new ArrayList<>(List.of("Maths")), new ArrayList<>(List.of("100")));
+        for (RosterEdit edit : edits) {
+            edit.applyTo(state);
+        }
+        return state;
+    }
+
+    @Test
+    void replaysEveryRecordInOrder() throws IOException {
+        EditJournal.Contents contents = EditJournal.read(writeJournal("abc:10"), "abc:10");
+        assertFalse(contents.damaged);
+        List<RosterEdit> edits = contents.edits;
+        assertEquals(EDITS.size(), edits.size());
+        RosterState state = replay(edits);
+        assertEquals(2, state.rows.size());
+        assertArrayEquals(new String[] { "1", "Anna", "80" }, state.rows.get(0));
+        assertArrayEquals(new String[] { "2", "Ben", "" }, state.rows.get(1));
+    }
+
+    @Test
+    void keepsTabsBackslashesAndLineBreaksInValues() throws IOException {
+        List<RosterEdit> edits = EditJournal.read(writeJournal("abc:10"), "abc:10").edits;
+        RosterState state = replay(edits.subList(0, 2));
+        assertArrayEquals(new String[] { "2", "Tab\there\\and\nbreak", "=C1*2" }, state.rows.get(1));
+    }
+
+    @Test
+    void keepsCommasAndTabsInSubjectNames() {
+        RosterEdit edit = RosterEdit.decode(RosterEdit.setSubjects(
+                List.of("Art, Modern", "Maths\tII", ""), List.of("50", "100,5", "10")).encode());
+        RosterState state = replay(List.of(RosterEdit.insertRow(0, new String[] { "1", "Ann", "70" }), edit));
+        assertEquals(List.of("Art, Modern", "Maths\tII", ""), state.subjects);
+        assertEquals(List.of("50", "100,5", "10"), state.maxMarks);
+        assertArrayEquals(new String[] { "1", "Ann", "70", "", "" }, state.rows.get(0));
+
+        RosterState cleared = replay(List.of(RosterEdit.decode(RosterEdit.setSubjects(List.of(), List.of()).encode())));
+        assertTrue(cleared.subjects.isEmpty());
+        assertTrue(cleared.maxMarks.isEmpty());
+    }
+
+    @Test
+    void ignoresAJournalOfAnotherSnapshot() throws IOException {
+        Path file = writeJournal("abc:10");
+        assertTrue(EditJournal.read(file, "abc:11").edits.isEmpty());
+        assertTrue(EditJournal.read(directory.resolve("missing.journal"), "abc:10").edits.isEmpty());
+    }
+
+    @Test
+    void stopsAtTheFirstCorruptRecord() throws IOException {
+        Path file = writeJournal("abc:10");
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        lines.set(3, lines.get(3).replace("75", "76")); // Third record; the CRC no longer matches
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        EditJournal.Contents contents = EditJournal.read(file, "abc:10");
+        assertEquals(2, contents.edits.size());
+        assertTrue(contents.damaged);
+    }
+
+    @Test
+    void stopsAtARecordTornByACrash() throws IOException {
+        Path file = writeJournal("abc:10");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        EditJournal.Contents contents = EditJournal.read(file, "abc:10");
+        assertEquals(EDITS.size() - 1, contents.edits.size());
+        assertTrue(contents.damaged);
+    }
+
+    @Test
+    void resetStartsAnEmptyJournal() throws IOException {
+        Path file = writeJournal("abc:10");
+        try (EditJournal journal = new EditJournal(file)) {
+            journal.reset("def:20");
+            assertEquals(0, journal.recordCount());
+        }
+        assertEquals(List.of("#journal def:20"), Files.readAllLines(file, StandardCharsets.UTF_8));
+        assertTrue(EditJournal.read(file, "abc:10").edits.isEmpty());
+    }
+}
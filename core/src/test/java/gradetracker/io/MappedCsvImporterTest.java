@@ -0,0 +1,98 @@
+package gradetracker.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import gradetracker.model.ColumnarRoster;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedCsvImporterTest {
+
+    private static final String ROSTER = "﻿Maths, \"Art, Modern\",Physics\r\n"
+            + "100,50,100\r\n"
+            + "1,Zoë Åström,72.5,\"4\"\"5\",07\r\n"
+            + "2,\"Line\nbreak\",85.50,-3\n"
+            + "3\r"
+            + "4,Short\r\n"
+            + "5,Long,1,2,3,4";
+
+    private static final String[][] ROWS = {
+            { "1", "Zoë Åström", "72.5", "4\"5", "07" },
+            { "2", "Line\nbreak", "85.50", "-3", "" },
+            { "4", "Short", "", "", "" },
+            { "5", "Long", "1", "2", "3" },
+    };
+
+    @TempDir
+    Path directory;
+
+    private Path write(String text) throws IOException {
+        return Files.write(directory.resolve("roster.csv"), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertRoster(ColumnarRoster roster, String message) {
+        assertEquals(List.of("Maths", "Art, Modern", "Physics"), roster.getSubjects(), message);
+        assertEquals(List.of("100", "50", "100"), roster.getMaxMarks(), message);
+        assertEquals(ROWS.length, roster.rowCount(), message);
+        for (int row = 0; row < ROWS.length; row++) {
+            assertArrayEquals(ROWS[row], roster.rowValues(row), message + ", row " + row);
+        }
+    }
+
+    @Test
+    void readsTheSameRosterWhereverTheWindowsEnd() throws IOException {
+        Path file = write(ROSTER);
+        long size = Files.size(file);
+        for (long windowSize = 1; windowSize <= size; windowSize++) {
+            assertRoster(MappedCsvImporter.read(file, (bytesRead, totalBytes, rowsRead) -> true, windowSize),
+                    "window of " + windowSize + " bytes");
+        }
+        assertRoster(MappedCsvImporter.read(file, (bytesRead, totalBytes, rowsRead) -> true), "default window");
+    }
+
+    @Test
+    void parsesPlainMarksIntoNumbers() throws IOException {
+        ColumnarRoster roster = MappedCsvImporter.read(write(ROSTER), (bytesRead, totalBytes, rowsRead) -> true, 7);
+        assertEquals(72.5, roster.mark(0, 0));
+        assertEquals(1, roster.fractionDigits(0, 0));
+        assertEquals(-3, roster.mark(1, 1));
+        assertEquals(Double.NaN, roster.mark(0, 2)); // "07" is kept as text
+        assertEquals(Double.NaN, roster.mark(1, 0)); // So is "85.50"
+    }
+
+    @Test
+    void matchesTheStreamingReader() throws IOException {
+        Path file = write(ROSTER);
+        RosterSnapshot snapshot = RosterSnapshot.readCsv(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        ColumnarRoster roster = MappedCsvImporter.read(file, (bytesRead, totalBytes, rowsRead) -> true, 3);
+        assertEquals(snapshot.getSubjects(), roster.getSubjects());
+        assertEquals(snapshot.getRows().size(), roster.rowCount());
+        for (int row = 0; row < roster.rowCount(); row++) {
+            String[] expected = snapshot.getRows().get(row);
+            String[] actual = roster.rowValues(row);
+            for (int column = 0; column < Math.min(expected.length, actual.length); column++) {
+                assertEquals(expected[column], actual[column], "row " + row + ", column " + column);
+            }
+        }
+    }
+
+    @Test
+    void needsBothHeaderLines() throws IOException {
+        assertNull(MappedCsvImporter.read(write(""), (bytesRead, totalBytes, rowsRead) -> true));
+        assertNull(MappedCsvImporter.read(write("Maths\n"), (bytesRead, totalBytes, rowsRead) -> true));
+    }
+
+    @Test
+    void stopsWhenTheListenerCancels() throws IOException {
+        assertNull(MappedCsvImporter.read(write(ROSTER), (bytesRead, totalBytes, rowsRead) -> false, 5));
+    }
+}